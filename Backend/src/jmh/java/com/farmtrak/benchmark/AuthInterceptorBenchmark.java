@@ -0,0 +1,65 @@
+package com.farmtrak.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.farmtrak.auth.CachingTokenVerifier;
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.config.AuthInterceptor;
+import com.farmtrak.service.TenantService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Per-request cost of AuthInterceptor with the RSA-checking stub verifier, with and
+// without the verified-token cache in front of it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthInterceptorBenchmark {
+
+    @Param({"true", "false"})
+    boolean tokenCache;
+
+    private AuthInterceptor interceptor;
+    private String authorization;
+
+    @Setup
+    public void setUp() throws Exception {
+        StubTokenVerifier stub = new StubTokenVerifier();
+        TokenVerifier verifier = tokenCache ? new CachingTokenVerifier(stub, 10_000) : stub;
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Tenant ids are cached after a user's first request; a fixed id stands in for the cache hit
+        TenantService tenants = new TenantService(null, 1, registry) {
+            @Override
+            public Long idOf(String userEmail) {
+                return 1L;
+            }
+        };
+        interceptor = new AuthInterceptor(verifier, tenants, registry);
+        authorization = "Bearer " + stub.issue(BenchmarkApp.USER);
+    }
+
+    @Benchmark
+    public Object preHandle() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+        request.addHeader("Authorization", authorization);
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        return request.getAttribute("userEmail");
+    }
+}
@@ -0,0 +1,247 @@
+package com.farmtrak.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.farmtrak.FarmTrakApplication;
+import com.farmtrak.service.DailyRollupService;
+import com.farmtrak.service.PartitionMaintenanceService;
+import com.farmtrak.service.TenantService;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+// Runs the real application on a random port against an embedded PostgreSQL with the
+// stub token verifier, and seeds one farm with a configurable amount of history, or
+// many synthetic farms for the load tests.
+public class BenchmarkApp implements AutoCloseable {
+
+    static final String USER = "bench@farmtrak.local";
+    static final int FLOCKS = 50;
+
+    // Synthetic farms are farm-<n>@farmtrak.local
+    private static final String FARMS = "'farm-%@farmtrak.local'";
+
+    // A seeded farm with a token for its requests
+    public record Farm(String user, String token, List<Long> flockIds) {
+    }
+
+    private final EmbeddedPostgres postgres;
+    private final boolean ownsPostgres;
+    private final ConfigurableApplicationContext context;
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final String baseUrl;
+    private final String token;
+
+    public BenchmarkApp(Map<String, String> properties) throws Exception {
+        this(EmbeddedPostgres.builder().start(), true, properties);
+    }
+
+    // Runs against an already started database, which close() leaves running
+    public BenchmarkApp(EmbeddedPostgres postgres, Map<String, String> properties) throws Exception {
+        this(postgres, false, properties);
+    }
+
+    private BenchmarkApp(EmbeddedPostgres postgres, boolean ownsPostgres, Map<String, String> properties)
+            throws Exception {
+        this.postgres = postgres;
+        this.ownsPostgres = ownsPostgres;
+        Map<String, String> props = new LinkedHashMap<>();
+        props.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        props.put("spring.datasource.username", "postgres");
+        props.put("spring.datasource.password", "");
+        props.put("server.port", "0");
+        props.put("management.server.port", "0");
+        props.put("logging.level.root", "WARN");
+        props.put("logging.level.com.farmtrak", "WARN");
+        // Benchmarks drive one farm far past the per-user limits; the load tests turn it back on
+        props.put("farmtrak.admission.enabled", "false");
+        // Replaced rather than repeated: Spring binds a repeated argument as both values joined by a comma
+        props.putAll(properties);
+        // Passed as command-line arguments so they take precedence over application.properties
+        context = new SpringApplicationBuilder(FarmTrakApplication.class, BenchmarkBeans.class)
+                .run(props.entrySet().stream().map(prop -> "--" + prop.getKey() + "=" + prop.getValue())
+                        .toArray(String[]::new));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+        token = context.getBean(StubTokenVerifier.class).issue(USER);
+    }
+
+    // Inserts rows one day apart, ending today, and rebuilds the rollups
+    public void seed(int expenses, int eggDays) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        Long tenantId = context.getBean(TenantService.class).idOf(USER);
+        LocalDate today = LocalDate.now();
+        List<Object[]> flockRows = new ArrayList<>();
+        for (int i = 0; i < FLOCKS; i++) {
+            flockRows.add(new Object[] {100 + i, "Layer", 20, Date.valueOf(today.minusYears(1)), USER, tenantId});
+        }
+        jdbc.batchUpdate("INSERT INTO flock (num_birds, bird_type, age, start_date, user_email, tenant_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", flockRows);
+        List<Object[]> expenseRows = new ArrayList<>(expenses);
+        for (int i = 0; i < expenses; i++) {
+            expenseRows.add(new Object[] {"feed", 100.0 + i % 50, Date.valueOf(today.minusDays(i % 3650)),
+                    "benchmark row " + i, i % 3 == 0, USER, tenantId});
+        }
+        jdbc.batchUpdate("INSERT INTO expense (category, amount, date, notes, paid, user_email, tenant_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", expenseRows);
+        List<Long> flockIds = jdbc.queryForList("SELECT id FROM flock WHERE tenant_id = ?", Long.class, tenantId);
+        List<Object[]> eggRows = new ArrayList<>();
+        for (int day = 0; day < eggDays; day++) {
+            for (Long flockId : flockIds) {
+                eggRows.add(new Object[] {80, Date.valueOf(today.minusDays(day + 1L)), flockId, USER, tenantId});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO egg_production (count, date, flock_id, user_email, tenant_id) "
+                + "VALUES (?, ?, ?, ?, ?)", eggRows);
+        context.getBean(DailyRollupService.class).rebuildAll();
+    }
+
+    // Seeds `farms` farms with 1 to 5 flocks each and `years` of history up to yesterday:
+    // daily egg counts per flock, an expense every third day, revenue weekly and a feed
+    // record per flock. Rows are generated inside the database, so thousands of farms
+    // take seconds rather than minutes. Partitions for the seeded months are created
+    // first, and after the rollups are rebuilt, egg months past egg-raw-months (when set)
+    // are compacted as partition maintenance would have done in production.
+    public List<Farm> seedFarms(int farms, int years) throws GeneralSecurityException {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        PartitionMaintenanceService partitions = bean(PartitionMaintenanceService.class);
+        Date today = Date.valueOf(LocalDate.now());
+        int days = years * 365;
+        YearMonth current = YearMonth.now();
+        for (String table : PartitionMaintenanceService.TABLES) {
+            if (!PartitionMaintenanceService.isRangePartitioned(jdbc, table)) {
+                continue;
+            }
+            for (YearMonth month = current.minusMonths(years * 12L + 1); month.isBefore(current);
+                    month = month.plusMonths(1)) {
+                String partition = String.format("%s_%04d_%02d", table, month.getYear(), month.getMonthValue());
+                if (Boolean.FALSE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                        partition))) {
+                    partitions.addMonth(table, month);
+                }
+            }
+        }
+
+        jdbc.update("INSERT INTO tenant (email) SELECT 'farm-' || n || '@farmtrak.local' "
+                + "FROM generate_series(1, ?) n ON CONFLICT (email) DO NOTHING", farms);
+        jdbc.update("INSERT INTO flock (num_birds, bird_type, age, start_date, user_email, tenant_id) "
+                + "SELECT 40 + CAST((t.id * 37 + f * 11) % 460 AS int), 'Layer', 20, CAST(? AS date) - ?, "
+                + "t.email, t.id FROM tenant t, generate_series(1, 1 + CAST(t.id % 5 AS int)) f "
+                + "WHERE t.email LIKE " + FARMS, today, days);
+        jdbc.update("INSERT INTO egg_production (count, date, flock_id, user_email, tenant_id) "
+                + "SELECT f.num_birds * (65 + CAST((f.id * 7 + d * 13) % 25 AS int)) / 100, CAST(? AS date) - d, "
+                + "f.id, f.user_email, f.tenant_id FROM flock f, generate_series(1, ?) d "
+                + "WHERE f.user_email LIKE " + FARMS, today, days);
+        jdbc.update("INSERT INTO expense (category, amount, date, notes, paid, user_email, tenant_id) "
+                + "SELECT (ARRAY['feed', 'medicine', 'equipment', 'labour', 'utilities'])"
+                + "[1 + CAST((t.id + d) % 5 AS int)], 10 + (t.id * 13 + d * 7) % 490, CAST(? AS date) - d, "
+                + "'seeded', d % 4 <> 0, t.email, t.id FROM tenant t, generate_series(1, ?, 3) d "
+                + "WHERE t.email LIKE " + FARMS, today, days);
+        jdbc.update("INSERT INTO revenue (category, amount, date, notes, user_email, tenant_id) "
+                + "SELECT (ARRAY['eggs', 'birds', 'manure'])[1 + CAST((t.id + d) % 3 AS int)], "
+                + "50 + (t.id * 17 + d * 3) % 950, CAST(? AS date) - d, 'seeded', t.email, t.id "
+                + "FROM tenant t, generate_series(1, ?, 7) d WHERE t.email LIKE " + FARMS, today, days);
+        jdbc.update("INSERT INTO feed_record (bird_name, num_birds, total_feed_given, days_lasted, user_email, "
+                + "tenant_id) SELECT 'Layer', num_birds, num_birds * 1.68, 14, user_email, tenant_id FROM flock "
+                + "WHERE user_email LIKE " + FARMS);
+        jdbc.execute("ANALYZE");
+        bean(DailyRollupService.class).rebuildAll();
+        bean(PartitionMaintenanceService.class).maintain();
+        return farms();
+    }
+
+    // The farms seedFarms() created, each with a freshly issued token
+    public List<Farm> farms() throws GeneralSecurityException {
+        Map<String, List<Long>> flocks = new LinkedHashMap<>();
+        bean(JdbcTemplate.class).query("SELECT t.email, f.id FROM tenant t JOIN flock f ON f.tenant_id = t.id "
+                        + "WHERE t.email LIKE " + FARMS + " ORDER BY t.id, f.id",
+                row -> {
+                    flocks.computeIfAbsent(row.getString(1), user -> new ArrayList<>()).add(row.getLong(2));
+                });
+        StubTokenVerifier verifier = bean(StubTokenVerifier.class);
+        List<Farm> result = new ArrayList<>(flocks.size());
+        for (Map.Entry<String, List<Long>> farm : flocks.entrySet()) {
+            result.add(new Farm(farm.getKey(), verifier.issue(farm.getKey()), List.copyOf(farm.getValue())));
+        }
+        return result;
+    }
+
+    public <B> B bean(Class<B> type) {
+        return context.getBean(type);
+    }
+
+    public List<Long> flockIds() {
+        Long tenantId = context.getBean(TenantService.class).idOf(USER);
+        return context.getBean(JdbcTemplate.class)
+                .queryForList("SELECT id FROM flock WHERE tenant_id = ? ORDER BY id", Long.class, tenantId);
+    }
+
+    public HttpResponse<byte[]> get(String path) throws IOException, InterruptedException {
+        return get(path, "Accept", "application/json");
+    }
+
+    // headers are name, value pairs; the body is returned as received, still compressed if it was
+    public HttpResponse<byte[]> get(String path, String... headers) throws IOException, InterruptedException {
+        return check(send(path, headers));
+    }
+
+    // As get(), but the status is not checked, so load tests can count failed requests instead of aborting
+    public HttpResponse<byte[]> send(String path, String... headers) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .headers(headers)
+                .GET()
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    public HttpResponse<byte[]> post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return check(http.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    // One request on behalf of a seeded farm; a GET when json is null. The status is not
+    // checked, so load tests can count failed requests instead of aborting.
+    public HttpResponse<byte[]> request(Farm farm, String path, String json) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + farm.token())
+                .header("Accept", "application/json");
+        if (json != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static HttpResponse<byte[]> check(HttpResponse<byte[]> response) {
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " for " + response.uri());
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (ownsPostgres) {
+            postgres.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.farmtrak.benchmark;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import com.farmtrak.auth.CachingTokenVerifier;
+import com.farmtrak.auth.TokenVerifier;
+
+// Registered explicitly as an extra source, not picked up by component scanning
+public class BenchmarkBeans {
+
+    @Bean
+    public StubTokenVerifier stubTokenVerifier(@Value("${farmtrak.bench.verify-latency-ms:0}") long latencyMillis) {
+        return new StubTokenVerifier(latencyMillis);
+    }
+
+    @Bean
+    @Primary
+    public TokenVerifier benchmarkTokenVerifier(StubTokenVerifier stub,
+                                                @Value("${farmtrak.auth.token-cache.enabled:true}") boolean cacheEnabled) {
+        return cacheEnabled ? new CachingTokenVerifier(stub, 10_000) : stub;
+    }
+}
@@ -0,0 +1,81 @@
+package com.farmtrak.benchmark;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+// Time to first request: from a fresh JVM, how long until the application context is up
+// and the first authenticated GET has been answered. Each fork measures exactly one
+// start, so nothing is warmed up. The schema is created beforehand by a separate
+// "--migrate" process, as in a deployment, so both profiles start against the same
+// database:
+//   default   - ddl-auto=update and the startup migrations run on every start
+//   coldstart - application-coldstart.properties: no schema work on startup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class ColdStartBenchmark {
+
+    @Param({"default", "coldstart"})
+    String profile;
+
+    private EmbeddedPostgres postgres;
+    private BenchmarkApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process migrate = new ProcessBuilder(List.of(java,
+                "-cp", System.getProperty("java.class.path"),
+                "com.farmtrak.FarmTrakApplication", "--migrate",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--logging.level.root=WARN"))
+                .inheritIO()
+                .start();
+        if (migrate.waitFor() != 0) {
+            throw new IllegalStateException("--migrate exited with " + migrate.exitValue());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopApp() throws Exception {
+        if (app != null) {
+            app.close();
+            app = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        postgres.close();
+    }
+
+    @Benchmark
+    public int firstRequest() throws Exception {
+        app = new BenchmarkApp(postgres, Map.of("spring.profiles.active", profile));
+        return app.get("/flocks").statusCode();
+    }
+}
@@ -0,0 +1,85 @@
+package com.farmtrak.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full HTTP round trips through Tomcat, the auth interceptor, the controllers and
+// an embedded PostgreSQL holding one farm's history
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"10000"})
+    int expenses;
+
+    @Param({"true", "false"})
+    String listCache;
+
+    private BenchmarkApp app;
+    private List<Long> flockIds;
+    private String today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        app = new BenchmarkApp(Map.of("farmtrak.list-cache.enabled", listCache));
+        app.seed(expenses, 365);
+        flockIds = app.flockIds();
+        today = LocalDate.now().toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        app.close();
+    }
+
+    @Benchmark
+    public int getAllExpenses() throws Exception {
+        return app.get("/expenses").body().length;
+    }
+
+    // The same list as sent to a client that accepts gzip, and CBOR as well
+    @Benchmark
+    public int getAllExpensesGzip() throws Exception {
+        return app.get("/expenses", "Accept", "application/json", "Accept-Encoding", "gzip").body().length;
+    }
+
+    @Benchmark
+    public int getAllExpensesCborGzip() throws Exception {
+        return app.get("/expenses", "Accept", "application/cbor", "Accept-Encoding", "gzip").body().length;
+    }
+
+    @Benchmark
+    public int dashboardSummary() throws Exception {
+        return app.get("/dashboard").body().length;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int saveProductionMerge() throws Exception {
+        Long flockId = flockIds.get(ThreadLocalRandom.current().nextInt(flockIds.size()));
+        return app.post("/eggs?merge=true",
+                "{\"flockId\":" + flockId + ",\"count\":1,\"date\":\"" + today + "\"}").statusCode();
+    }
+}
@@ -0,0 +1,124 @@
+package com.farmtrak.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.farmtrak.dto.EggRow;
+import com.farmtrak.dto.ExpenseRow;
+import com.farmtrak.model.EggProduction;
+import com.farmtrak.model.Expense;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Jackson cost of the list endpoints' response bodies, without the database, per
+// encoding and with and without gzip. "compact" serializes the row records the endpoints
+// return; "full" serializes the entities with userEmail put back, as responses were
+// before, for a before/after comparison. The payload sizes of each combination are
+// printed once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"compact", "full"})
+    String rowFormat;
+
+    private ObjectMapper mapper;
+    private List<Object> expenses;
+    private List<Object> eggs;
+
+    // On the getter: a field mixin does not lift the entity's @JsonIgnore, and the
+    // "full" payloads came out the same size as the compact ones
+    abstract static class FullRow {
+        @JsonProperty
+        abstract String getUserEmail();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        boolean full = rowFormat.equals("full");
+        if (full) {
+            mapper.addMixIn(Expense.class, FullRow.class);
+            mapper.addMixIn(EggProduction.class, FullRow.class);
+        }
+        LocalDate today = LocalDate.now();
+        expenses = new ArrayList<>(rows);
+        eggs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long id = i;
+            LocalDate expenseDate = today.minusDays(i % 3650);
+            LocalDate eggDate = today.minusDays(i / 50);
+            expenses.add(full
+                    ? new Expense(id, "feed", 100.0 + i % 50, expenseDate, "benchmark row " + i, i % 3 == 0,
+                            BenchmarkApp.USER, i, 1L)
+                    : new ExpenseRow(id, "feed", 100.0 + i % 50, expenseDate, "benchmark row " + i, i % 3 == 0, i));
+            eggs.add(full
+                    ? new EggProduction(id, 80 + i % 20, eggDate, (long) (i % 50), BenchmarkApp.USER, i, 1L)
+                    : new EggRow(id, 80 + i % 20, eggDate, (long) (i % 50), i));
+        }
+        System.out.printf("%s %s, %d rows: expenses %d bytes (%d gzipped), eggs %d bytes (%d gzipped)%n",
+                format, rowFormat, rows, serializeExpenses().length, serializeExpensesGzip().length,
+                serializeEggs().length, serializeEggsGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serializeExpenses() throws IOException {
+        return mapper.writeValueAsBytes(expenses);
+    }
+
+    @Benchmark
+    public byte[] serializeEggs() throws IOException {
+        return mapper.writeValueAsBytes(eggs);
+    }
+
+    // What Tomcat's response compression adds on top, at its default level
+    @Benchmark
+    public byte[] serializeExpensesGzip() throws IOException {
+        return gzip(expenses);
+    }
+
+    @Benchmark
+    public byte[] serializeEggsGzip() throws IOException {
+        return gzip(eggs);
+    }
+
+    private byte[] gzip(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, value);
+        }
+        return bytes.toByteArray();
+    }
+}
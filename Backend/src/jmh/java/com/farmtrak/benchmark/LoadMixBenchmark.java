@@ -0,0 +1,267 @@
+package com.farmtrak.benchmark;
+
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import com.farmtrak.benchmark.BenchmarkApp.Farm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Capacity test: how many farms one instance serves. Seeds `farms` synthetic farms with
+// `years` of history (BenchmarkApp.seedFarms) and has 64 concurrent clients replay a
+// scenario against the controllers, each operation on behalf of a random farm:
+//
+//   page-load  the requests the frontend pages make when opened, by how often they are
+//   logging    daily data entry: an egg count, a bulk entry for every flock, an expense
+//              or revenue entry, each followed by the list reload the page does after
+//              saving, and the duplicate check before an egg entry
+//   mixed      page loads with one operation in seven a logging one
+//
+// One operation is one page load or one logged entry, so it may be several requests.
+// Throughput mode gives operations/s; SampleTime gives their latency distribution,
+// including p0.50 and p0.99. At the end of each trial the HTTP requests per route and
+// the SQL statements each executed on average, JdbcTemplate and Hibernate alike
+// (farmtrak.db.statements.per.request, see StatementCountingDataSource), are printed over
+// the measurement iterations only, with the count of failed requests. Admission control
+// is on as in production, so requests it refuses with 429 are counted as throttled rather
+// than failed; they are in the route figures too, with the statements of their sign-in.
+//
+// Seeding runs once per trial, so pick one scenario to keep a run short:
+//   ./mvnw -Pbenchmark verify -Djmh.include=LoadMixBenchmark -Djmh.args="-p scenario=mixed"
+// Egg ingestion and the change stream are off by default and not part of the mixes.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 20)
+@Measurement(iterations = 3, time = 30)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(64)
+public class LoadMixBenchmark {
+
+    private static final String STATEMENTS = "farmtrak.db.statements.per.request";
+
+    @Param({"page-load", "logging", "mixed"})
+    String scenario;
+
+    @Param({"2000"})
+    int farms;
+
+    @Param({"3"})
+    int years;
+
+    @FunctionalInterface
+    interface Step {
+        void run(Farm farm, int index) throws Exception;
+    }
+
+    private record Action(String name, int weight, Step step) {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Map<String, long[]> measured = new TreeMap<>();
+    private BenchmarkApp app;
+    private List<Farm> seeded;
+    // Last /changes version each farm has seen, as a polling client keeps it
+    private AtomicLongArray changesSeen;
+    // Actions repeated by weight, so picking one is a single random index
+    private Action[] slots;
+    private Map<String, long[]> iterationStart;
+    private long failuresAtStart;
+    private long throttledAtStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        app = new BenchmarkApp(Map.of(
+                "farmtrak.list-cache.enabled", "true",
+                "farmtrak.admission.enabled", "true"));
+        seeded = app.seedFarms(farms, years);
+        changesSeen = new AtomicLongArray(seeded.size());
+        List<Action> actions = switch (scenario) {
+            case "page-load" -> pageLoads(1);
+            case "logging" -> logging(1);
+            case "mixed" -> {
+                List<Action> mixed = new ArrayList<>(pageLoads(6));
+                mixed.addAll(logging(1));
+                yield mixed;
+            }
+            default -> throw new IllegalArgumentException("Unknown scenario " + scenario);
+        };
+        List<Action> weighted = new ArrayList<>();
+        for (Action action : actions) {
+            for (int i = 0; i < action.weight(); i++) {
+                weighted.add(action);
+            }
+        }
+        slots = weighted.toArray(Action[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        long requests = 0;
+        System.out.printf("%n%s, %d farms, %d years of history%n", scenario, seeded.size(), years);
+        System.out.printf("%-45s %10s %16s%n", "route", "requests", "sql/req");
+        for (Map.Entry<String, long[]> route : measured.entrySet()) {
+            long[] totals = route.getValue();
+            requests += totals[0];
+            System.out.printf("%-45s %10d %16.2f%n", route.getKey(), totals[0],
+                    totals[0] == 0 ? 0.0 : (double) totals[1] / totals[0]);
+        }
+        System.out.printf("%d requests, %d throttled, %d failed%n", requests, throttled.sum(), failures.sum());
+        app.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStart = statements();
+        failuresAtStart = failures.sum();
+        throttledAtStart = throttled.sum();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration(IterationParams iteration) {
+        if (iteration.getType() != IterationType.MEASUREMENT) {
+            // Warmup failures are not reported
+            failures.add(failuresAtStart - failures.sum());
+            throttled.add(throttledAtStart - throttled.sum());
+            return;
+        }
+        statements().forEach((route, now) -> {
+            long[] before = iterationStart.getOrDefault(route, new long[2]);
+            long[] totals = measured.computeIfAbsent(route, key -> new long[2]);
+            totals[0] += now[0] - before[0];
+            totals[1] += now[1] - before[1];
+        });
+    }
+
+    @Benchmark
+    public void operation() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(seeded.size());
+        slots[random.nextInt(slots.length)].step().run(seeded.get(index), index);
+    }
+
+    // Weights are in percent of all page loads, times `scale`
+    private List<Action> pageLoads(int scale) {
+        return List.of(
+                new Action("dashboard", 30 * scale, (farm, index) -> get(farm, "/dashboard?days=7")),
+                new Action("production", 20 * scale, (farm, index) -> {
+                    get(farm, "/flocks");
+                    get(farm, "/eggs");
+                    get(farm, "/eggs/trend?days=30&window=7");
+                }),
+                new Action("expenses", 12 * scale, (farm, index) -> get(farm, "/expenses")),
+                new Action("revenue", 8 * scale, (farm, index) -> get(farm, "/revenue")),
+                new Action("flocks", 6 * scale, (farm, index) -> get(farm, "/flocks")),
+                new Action("feed", 6 * scale, (farm, index) -> {
+                    get(farm, "/feed-records");
+                    get(farm, "/feed-records/forecast?stockKg=500");
+                }),
+                new Action("analytics", 6 * scale, (farm, index) -> {
+                    get(farm, "/analytics/profitability");
+                    get(farm, "/eggs/monthly");
+                }),
+                new Action("sync", 10 * scale, (farm, index) -> {
+                    HttpResponse<byte[]> response = get(farm, "/changes?since=" + changesSeen.get(index));
+                    if (response.statusCode() == 200) {
+                        changesSeen.set(index, mapper.readTree(response.body()).get("version").asLong());
+                    }
+                }),
+                new Action("export", 2 * scale, (farm, index) -> get(farm, "/export/expenses?format=csv")));
+    }
+
+    private List<Action> logging(int scale) {
+        return List.of(
+                new Action("egg entry", 40 * scale, (farm, index) -> {
+                    int count = 20 + ThreadLocalRandom.current().nextInt(80);
+                    post(farm, "/eggs?merge=true", "{\"flockId\":" + anyFlock(farm) + ",\"count\":" + count
+                            + ",\"date\":\"" + LocalDate.now() + "\"}");
+                    get(farm, "/eggs");
+                }),
+                new Action("bulk egg entry", 15 * scale, (farm, index) -> {
+                    StringBuilder entries = new StringBuilder("[");
+                    for (Long flockId : farm.flockIds()) {
+                        int count = 20 + ThreadLocalRandom.current().nextInt(80);
+                        entries.append(entries.length() > 1 ? "," : "").append("{\"flockId\":").append(flockId)
+                                .append(",\"count\":").append(count).append('}');
+                    }
+                    post(farm, "/eggs/bulk", entries.append(']').toString());
+                    get(farm, "/eggs");
+                }),
+                new Action("egg check", 10 * scale, (farm, index) ->
+                        get(farm, "/eggs/exists?flockId=" + anyFlock(farm) + "&date=" + LocalDate.now())),
+                new Action("expense entry", 20 * scale, (farm, index) -> {
+                    post(farm, "/expenses", "{\"category\":\"feed\",\"amount\":"
+                            + (10 + ThreadLocalRandom.current().nextInt(490)) + ",\"date\":\"" + LocalDate.now()
+                            + "\",\"notes\":\"load test\",\"paid\":true}");
+                    get(farm, "/expenses");
+                }),
+                new Action("revenue entry", 15 * scale, (farm, index) -> {
+                    post(farm, "/revenue", "{\"category\":\"eggs\",\"amount\":"
+                            + (50 + ThreadLocalRandom.current().nextInt(950)) + ",\"date\":\"" + LocalDate.now()
+                            + "\",\"notes\":\"load test\"}");
+                    get(farm, "/revenue");
+                }));
+    }
+
+    private static Long anyFlock(Farm farm) {
+        return farm.flockIds().get(ThreadLocalRandom.current().nextInt(farm.flockIds().size()));
+    }
+
+    private HttpResponse<byte[]> get(Farm farm, String path) throws Exception {
+        return counted(app.request(farm, path, null));
+    }
+
+    private HttpResponse<byte[]> post(Farm farm, String path, String json) throws Exception {
+        return counted(app.request(farm, path, json));
+    }
+
+    private HttpResponse<byte[]> counted(HttpResponse<byte[]> response) {
+        if (response.statusCode() == 429) {
+            throttled.increment();
+        } else if (response.statusCode() >= 400) {
+            failures.increment();
+        }
+        return response;
+    }
+
+    // Requests and statements so far per "METHOD route"
+    private Map<String, long[]> statements() {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (DistributionSummary summary : app.bean(MeterRegistry.class).find(STATEMENTS).summaries()) {
+            String route = summary.getId().getTag("method") + " " + summary.getId().getTag("uri");
+            long[] total = totals.computeIfAbsent(route, key -> new long[2]);
+            total[0] += summary.count();
+            total[1] += (long) summary.totalAmount();
+        }
+        return totals;
+    }
+}
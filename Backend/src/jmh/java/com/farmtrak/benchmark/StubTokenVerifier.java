@@ -0,0 +1,62 @@
+package com.farmtrak.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.auth.VerifiedToken;
+
+// Local stand-in for Firebase: tokens are "<email>.<RS256 signature of the email>" signed
+// with a key generated at startup, so verification still costs a real RSA signature check.
+// An optional latency stands in for the blocking round trip a Firebase check can cost.
+public class StubTokenVerifier implements TokenVerifier {
+
+    private final KeyPair keyPair;
+    private final long latencyMillis;
+
+    public StubTokenVerifier() {
+        this(0);
+    }
+
+    public StubTokenVerifier(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String issue(String email) throws GeneralSecurityException {
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keyPair.getPrivate());
+        signer.update(email.getBytes(StandardCharsets.UTF_8));
+        return email + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signer.sign());
+    }
+
+    @Override
+    public VerifiedToken verify(String idToken) throws Exception {
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+        int dot = idToken.lastIndexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Malformed token");
+        }
+        String email = idToken.substring(0, dot);
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(email.getBytes(StandardCharsets.UTF_8));
+        if (!verifier.verify(Base64.getUrlDecoder().decode(idToken.substring(dot + 1)))) {
+            throw new IllegalArgumentException("Bad signature");
+        }
+        return new VerifiedToken(email, Instant.now().plusSeconds(3600).getEpochSecond());
+    }
+}
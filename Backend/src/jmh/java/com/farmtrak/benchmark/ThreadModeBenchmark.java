@@ -0,0 +1,108 @@
+package com.farmtrak.benchmark;
+
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+// Load test of platform-thread against virtual-thread request execution
+// (farmtrak.threads.virtual). Runs a burst of 256 concurrent clients against a small
+// instance: 64 Tomcat threads in platform mode and a 10-connection Hikari pool in both
+// modes. The token cache is off and every verification blocks for verifyLatencyMs, as a
+// Firebase round trip would. Both modes run in a fork with the same fixed heap, so the
+// comparison is at equal memory. Throughput mode gives requests/ms; SampleTime gives
+// the latency distribution, including p0.99. Failed requests, such as a 500 after
+// waiting connection-timeout for a pooled connection, are counted rather than ending the
+// run, and the count over the measurement iterations is printed at the end of each trial.
+//
+// The virtual mode needs the benchmark JVM to be Java 21 or newer:
+//   ./mvnw -Pbenchmark verify -Djmh.include=ThreadModeBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+@Threads(256)
+public class ThreadModeBenchmark {
+
+    @Param({"false", "true"})
+    String virtualThreads;
+
+    @Param({"20"})
+    String verifyLatencyMs;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private long measuredRequests;
+    private long measuredFailures;
+    private BenchmarkApp app;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        app = new BenchmarkApp(Map.of(
+                "farmtrak.threads.virtual", virtualThreads,
+                "farmtrak.auth.token-cache.enabled", "false",
+                "farmtrak.bench.verify-latency-ms", verifyLatencyMs,
+                "server.tomcat.threads.max", "64",
+                "spring.datasource.hikari.maximum-pool-size", "10"));
+        app.seed(1000, 30);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%nvirtualThreads=%s: %d of %d requests failed%n", virtualThreads, measuredFailures,
+                measuredRequests);
+        app.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        requests.reset();
+        failures.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration(IterationParams iteration) {
+        if (iteration.getType() == IterationType.MEASUREMENT) {
+            measuredRequests += requests.sum();
+            measuredFailures += failures.sum();
+        }
+    }
+
+    // One keyset page: a short query after the blocking verification
+    @Benchmark
+    public int getExpensePage() throws Exception {
+        return counted(app.send("/expenses?limit=50", "Accept", "application/json")).body().length;
+    }
+
+    @Benchmark
+    public int dashboardSummary() throws Exception {
+        return counted(app.send("/dashboard", "Accept", "application/json")).body().length;
+    }
+
+    private HttpResponse<byte[]> counted(HttpResponse<byte[]> response) {
+        requests.increment();
+        if (response.statusCode() >= 400) {
+            failures.increment();
+        }
+        return response;
+    }
+}
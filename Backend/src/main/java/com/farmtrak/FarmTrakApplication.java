@@ -1,51 +1,37 @@
 package com.farmtrak;
 
-import java.io.IOException;
-import java.io.InputStream;
-
-import javax.annotation.PostConstruct;
+import java.util.Arrays;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.core.io.ClassPathResource;
-
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.firebase.FirebaseApp;
-import com.google.firebase.FirebaseOptions;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class FarmTrakApplication {
 
+    // "--migrate" updates the schema and runs the data migrations without starting the
+    // web server, then exits. Run it as a deploy step when the app itself starts with
+    // the coldstart profile, which skips both.
+    static final String MIGRATE_ARG = "--migrate";
+
     public static void main(String[] args) {
-        SpringApplication.run(FarmTrakApplication.class, args);
+        if (Arrays.asList(args).contains(MIGRATE_ARG)) {
+            // The AOT-generated context is for the web application with the coldstart profile
+            System.setProperty("spring.aot.enabled", "false");
+            System.exit(SpringApplication.exit(SpringApplication.run(FarmTrakApplication.class, migrateArgs(args))));
+        }
+        ConfigurableApplicationContext context = SpringApplication.run(FarmTrakApplication.class, args);
+        // Used by the CDS training run in the Docker build: start once, then exit
+        if (Boolean.getBoolean("farmtrak.startup.exit-after-refresh")) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
-    @PostConstruct
-    public void initializeFirebase() {
-        try {
-            if (FirebaseApp.getApps().isEmpty()) {
-                InputStream serviceAccount;
-                
-                // Try to load from environment variable first (for production)
-                String serviceAccountKey = System.getenv("FIREBASE_SERVICE_ACCOUNT_KEY");
-                if (serviceAccountKey != null) {
-                    serviceAccount = new java.io.ByteArrayInputStream(serviceAccountKey.getBytes());
-                } else {
-                    // Fallback to local file (for development)
-                    serviceAccount = new ClassPathResource("serviceAccountKey.json").getInputStream();
-                }
-                
-                GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount);
-                FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(credentials)
-                    .build();
-                    
-                FirebaseApp.initializeApp(options);
-                System.out.println("Firebase initialized successfully");
-            }
-        } catch (IOException e) {
-            System.err.println("Failed to initialize Firebase: " + e.getMessage());
-            throw new RuntimeException("Firebase initialization failed", e);
-        }
+    private static String[] migrateArgs(String[] args) {
+        String[] migrate = Arrays.copyOf(args, args.length + 3);
+        migrate[args.length] = "--spring.main.web-application-type=none";
+        migrate[args.length + 1] = "--spring.jpa.hibernate.ddl-auto=update";
+        migrate[args.length + 2] = "--farmtrak.migrations.on-startup=true";
+        return migrate;
     }
 }
@@ -0,0 +1,137 @@
+package com.farmtrak.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers successfully verified tokens until their "exp" claim so that a burst of
+// requests carrying the same token pays for the signature check only once.
+// Entries are keyed by a SHA-256 hash so raw tokens are never kept in memory.
+// Concurrent misses for the same token share one verification: the first caller verifies
+// and the others wait for its result instead of each calling Firebase.
+public class CachingTokenVerifier implements TokenVerifier {
+
+    private final TokenVerifier delegate;
+    private final int maxSize;
+    private final Clock clock;
+    private final Map<String, VerifiedToken> cache;
+    private final Map<String, CompletableFuture<VerifiedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingTokenVerifier(TokenVerifier delegate, int maxSize) {
+        this(delegate, maxSize, Clock.systemUTC());
+    }
+
+    public CachingTokenVerifier(TokenVerifier delegate, int maxSize, Clock clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        // Access-ordered, so the least recently used token is evicted first
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                if (size() > CachingTokenVerifier.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public VerifiedToken verify(String idToken) throws Exception {
+        String key = hash(idToken);
+        long now = clock.instant().getEpochSecond();
+
+        synchronized (cache) {
+            VerifiedToken cached = cache.get(key);
+            if (cached != null) {
+                if (cached.getExpiresAtEpochSecond() > now) {
+                    hits.incrementAndGet();
+                    return cached;
+                }
+                cache.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        CompletableFuture<VerifiedToken> pending = new CompletableFuture<>();
+        CompletableFuture<VerifiedToken> running = inFlight.putIfAbsent(key, pending);
+        if (running != null) {
+            // Served without a verification of its own, so counted as a hit
+            hits.incrementAndGet();
+            return await(running);
+        }
+
+        misses.incrementAndGet();
+        try {
+            VerifiedToken verified = delegate.verify(idToken);
+            if (verified.getExpiresAtEpochSecond() > now) {
+                synchronized (cache) {
+                    cache.put(key, verified);
+                }
+            }
+            pending.complete(verified);
+            return verified;
+        } catch (Exception | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    // Waiters see the same exception the verifying caller got
+    private static VerifiedToken await(CompletableFuture<VerifiedToken> running) throws Exception {
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
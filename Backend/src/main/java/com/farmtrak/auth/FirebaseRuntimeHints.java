@@ -0,0 +1,30 @@
+package com.farmtrak.auth;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+// Only used by the native image build. The Google client libraries parse tokens, public
+// keys and service account files into @Key-annotated classes by reflection.
+public class FirebaseRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String[] REFLECTIVE_TYPES = {
+            "com.google.api.client.json.GenericJson",
+            "com.google.api.client.util.GenericData",
+            "com.google.api.client.json.webtoken.JsonWebSignature$Header",
+            "com.google.api.client.json.webtoken.JsonWebToken$Header",
+            "com.google.api.client.json.webtoken.JsonWebToken$Payload",
+            "com.google.api.client.auth.openidconnect.IdToken$Payload",
+            "com.google.firebase.auth.internal.FirebaseCustomAuthToken$Payload",
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String type : REFLECTIVE_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.values());
+        }
+        hints.resources().registerPattern("admin_sdk.properties");
+        hints.resources().registerPattern("serviceAccountKey.json");
+    }
+}
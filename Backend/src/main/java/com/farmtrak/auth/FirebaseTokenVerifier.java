@@ -0,0 +1,77 @@
+package com.farmtrak.auth;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseToken;
+
+// Firebase is initialized on the first verification rather than during startup, so a
+// cold start does not wait for the service account credentials to be parsed.
+public class FirebaseTokenVerifier implements TokenVerifier {
+
+    private final ReentrantLock initLock = new ReentrantLock();
+    private final Logger logger = LoggerFactory.getLogger(FirebaseTokenVerifier.class);
+    private volatile FirebaseAuth auth;
+
+    @Override
+    public VerifiedToken verify(String idToken) throws Exception {
+        FirebaseToken decodedToken = auth().verifyIdToken(idToken);
+        Object exp = decodedToken.getClaims().get("exp");
+        long expiresAt = exp instanceof Number ? ((Number) exp).longValue() : 0L;
+        return new VerifiedToken(decodedToken.getEmail(), expiresAt);
+    }
+
+    private FirebaseAuth auth() throws IOException {
+        FirebaseAuth current = auth;
+        if (current != null) {
+            return current;
+        }
+        initLock.lock();
+        try {
+            if (auth == null) {
+                auth = FirebaseAuth.getInstance(initializeApp());
+            }
+            return auth;
+        } catch (IOException e) {
+            // Not remembered: the next request tries again
+            logger.error("Failed to initialize Firebase: {}", e.getMessage());
+            throw e;
+        } finally {
+            initLock.unlock();
+        }
+    }
+
+    private FirebaseApp initializeApp() throws IOException {
+        if (!FirebaseApp.getApps().isEmpty()) {
+            return FirebaseApp.getInstance();
+        }
+        try (InputStream serviceAccount = openServiceAccount()) {
+            FirebaseOptions options = FirebaseOptions.builder()
+                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                    .build();
+            FirebaseApp app = FirebaseApp.initializeApp(options);
+            logger.info("Firebase initialized");
+            return app;
+        }
+    }
+
+    // The environment variable is used in production, the classpath file in development
+    private static InputStream openServiceAccount() throws IOException {
+        String serviceAccountKey = System.getenv("FIREBASE_SERVICE_ACCOUNT_KEY");
+        if (serviceAccountKey != null) {
+            return new ByteArrayInputStream(serviceAccountKey.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ClassPathResource("serviceAccountKey.json").getInputStream();
+    }
+}
@@ -0,0 +1,7 @@
+package com.farmtrak.auth;
+
+// Turns a bearer ID token into the identity it was issued for.
+// Implementations throw if the token is malformed, expired or not correctly signed.
+public interface TokenVerifier {
+    VerifiedToken verify(String idToken) throws Exception;
+}
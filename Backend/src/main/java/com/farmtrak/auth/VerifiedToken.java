@@ -0,0 +1,12 @@
+package com.farmtrak.auth;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class VerifiedToken {
+    private String email;
+    // Value of the token's "exp" claim, in epoch seconds
+    private long expiresAtEpochSecond;
+}
@@ -0,0 +1,47 @@
+package com.farmtrak.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import com.farmtrak.auth.CachingTokenVerifier;
+import com.farmtrak.auth.FirebaseRuntimeHints;
+import com.farmtrak.auth.FirebaseTokenVerifier;
+import com.farmtrak.auth.TokenVerifier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+@ImportRuntimeHints(FirebaseRuntimeHints.class)
+public class AuthConfig {
+
+    // A test or local setup can register its own TokenVerifier bean to replace Firebase
+    @Bean
+    @ConditionalOnMissingBean(TokenVerifier.class)
+    public TokenVerifier tokenVerifier(@Value("${farmtrak.auth.token-cache.enabled:true}") boolean cacheEnabled,
+                                       @Value("${farmtrak.auth.token-cache.max-size:10000}") int cacheMaxSize) {
+        TokenVerifier firebase = new FirebaseTokenVerifier();
+        return cacheEnabled ? new CachingTokenVerifier(firebase, cacheMaxSize) : firebase;
+    }
+
+    @Bean
+    public MeterBinder tokenCacheMetrics(TokenVerifier tokenVerifier) {
+        return registry -> {
+            if (!(tokenVerifier instanceof CachingTokenVerifier cache)) {
+                return;
+            }
+            FunctionCounter.builder("farmtrak.auth.token.cache", cache, CachingTokenVerifier::getHitCount)
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("farmtrak.auth.token.cache", cache, CachingTokenVerifier::getMissCount)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("farmtrak.auth.token.cache.evictions", cache, CachingTokenVerifier::getEvictionCount)
+                    .register(registry);
+            Gauge.builder("farmtrak.auth.token.cache.size", cache, CachingTokenVerifier::size)
+                    .register(registry);
+        };
+    }
+}
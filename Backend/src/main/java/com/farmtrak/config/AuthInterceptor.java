@@ -0,0 +1,70 @@
+package com.farmtrak.config;
+
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.auth.VerifiedToken;
+import com.farmtrak.service.TenantService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+// Verifies the bearer ID token on /api/** and exposes the caller's email as the
+// "userEmail" request attribute that every controller reads, and their numeric tenant id
+// as "tenantId", which every query on the data tables filters by.
+public class AuthInterceptor implements HandlerInterceptor {
+
+    private final TokenVerifier tokenVerifier;
+    private final TenantService tenants;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+
+    public AuthInterceptor(TokenVerifier tokenVerifier, TenantService tenants, MeterRegistry registry) {
+        this.tokenVerifier = tokenVerifier;
+        this.tenants = tenants;
+        this.verifiedTimer = verifyTimer(registry, "verified");
+        this.rejectedTimer = verifyTimer(registry, "rejected");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getMethod().equals("OPTIONS")) {
+            return true;
+        }
+
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Missing or invalid Authorization header");
+            return false;
+        }
+
+        String idToken = authHeader.substring(7);
+
+        long started = System.nanoTime();
+        String email;
+        try {
+            VerifiedToken verifiedToken = tokenVerifier.verify(idToken);
+            verifiedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            email = verifiedToken.getEmail();
+        } catch (Exception e) {
+            rejectedTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Invalid Firebase token: " + e.getMessage());
+            return false;
+        }
+
+        request.setAttribute("userEmail", email);
+        request.setAttribute("tenantId", tenants.idOf(email));
+        return true;
+    }
+
+    private static Timer verifyTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("farmtrak.auth.verify")
+                .description("Time spent verifying bearer ID tokens")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,188 @@
+package com.farmtrak.config;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Lets at most max-concurrent of the expensive reads it is registered for (full lists,
+// dashboard, analytics, exports) run at a time, so they cannot take every Tomcat thread
+// and pooled connection between them. Further ones wait in a queue per user, and a freed
+// slot goes to the users in round-robin order: a user with many requests waiting delays
+// every other user by at most one request. At most max-queued requests wait in total, and
+// max-queued-per-user per user; a request that finds no room, or waits max-wait without
+// getting a slot, is refused with 429 and Retry-After. Runs after TenantRateLimiter.
+@Component
+public class FairRequestQueue implements HandlerInterceptor {
+
+    private static final String SLOT = FairRequestQueue.class.getName() + ".slot";
+
+    private static final class Waiter {
+        private final CountDownLatch signal = new CountDownLatch(1);
+        // Guarded by the queue
+        private boolean granted;
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxQueuedPerUser;
+    private final Duration maxWait;
+    private final Timer waitTimer;
+    private final Counter rejectedFull;
+    private final Counter rejectedTimeout;
+
+    // Guarded by this; users in the order their next request gets a slot
+    private final Map<Long, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+    private int running;
+    private int queued;
+
+    public FairRequestQueue(@Value("${farmtrak.admission.max-concurrent:6}") int maxConcurrent,
+                            @Value("${farmtrak.admission.max-queued:100}") int maxQueued,
+                            @Value("${farmtrak.admission.max-queued-per-user:4}") int maxQueuedPerUser,
+                            @Value("${farmtrak.admission.max-wait:2s}") Duration maxWait,
+                            MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.maxWait = maxWait;
+        Gauge.builder("farmtrak.admission.queue.depth", this, FairRequestQueue::queued)
+                .description("Expensive requests waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("farmtrak.admission.queue.running", this, FairRequestQueue::running)
+                .description("Expensive requests holding a slot")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("farmtrak.admission.queue.wait")
+                .description("Time expensive requests waited for a slot")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedFull = rejected(meterRegistry, "full");
+        this.rejectedTimeout = rejected(meterRegistry, "timeout");
+    }
+
+    // True once the caller holds a slot, which it must give back with release()
+    public boolean acquire(Long tenantId) throws InterruptedException {
+        Waiter waiter = new Waiter();
+        synchronized (this) {
+            // Requests already waiting go first
+            if (running < maxConcurrent && queued == 0) {
+                running++;
+                return true;
+            }
+            ArrayDeque<Waiter> own = waiting.get(tenantId);
+            if (queued >= maxQueued || (own != null && own.size() >= maxQueuedPerUser)) {
+                rejectedFull.increment();
+                return false;
+            }
+            waiting.computeIfAbsent(tenantId, id -> new ArrayDeque<>()).add(waiter);
+            queued++;
+        }
+
+        long started = System.nanoTime();
+        boolean signalled;
+        try {
+            signalled = waiter.signal.await(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            if (!cancel(tenantId, waiter)) {
+                release();
+            }
+            throw e;
+        }
+        waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        // A slot handed over just after the wait ran out is still taken
+        if (signalled || !cancel(tenantId, waiter)) {
+            return true;
+        }
+        rejectedTimeout.increment();
+        return false;
+    }
+
+    // Hands the slot to the next user in turn, or frees it when nobody waits
+    public synchronized void release() {
+        Iterator<Map.Entry<Long, ArrayDeque<Waiter>>> users = waiting.entrySet().iterator();
+        if (!users.hasNext()) {
+            running--;
+            return;
+        }
+        Map.Entry<Long, ArrayDeque<Waiter>> next = users.next();
+        users.remove();
+        Waiter waiter = next.getValue().poll();
+        if (!next.getValue().isEmpty()) {
+            // To the back of the line with the rest of this user's requests
+            waiting.put(next.getKey(), next.getValue());
+        }
+        queued--;
+        waiter.granted = true;
+        waiter.signal.countDown();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        // A keyset page (?limit=) is one short indexed query
+        if (!request.getMethod().equals("GET") || request.getParameter("limit") != null
+                || !(request.getAttribute("tenantId") instanceof Long tenantId)) {
+            return true;
+        }
+        if (acquire(tenantId)) {
+            request.setAttribute(SLOT, Boolean.TRUE);
+            return true;
+        }
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                Long.toString(TenantRateLimiter.retryAfterSeconds(maxWait.toNanos())));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests waiting");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(SLOT) != null) {
+            request.removeAttribute(SLOT);
+            release();
+        }
+    }
+
+    synchronized int queued() {
+        return queued;
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    // False when the waiter was granted a slot in the meantime, which it then holds
+    private synchronized boolean cancel(Long tenantId, Waiter waiter) {
+        if (waiter.granted) {
+            return false;
+        }
+        ArrayDeque<Waiter> own = waiting.get(tenantId);
+        own.remove(waiter);
+        if (own.isEmpty()) {
+            waiting.remove(tenantId);
+        }
+        queued--;
+        return true;
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason) {
+        return Counter.builder("farmtrak.admission.queue.rejected")
+                .description("Expensive requests refused by the fair queue")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,50 @@
+package com.farmtrak.config;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Remembers which users sent a mutating request in the last `window`, so that their reads
+// keep going to the primary until the replica has caught up with what they wrote. Runs
+// after AuthInterceptor; the window starts again when the request completes.
+public class ReadYourWrites implements HandlerInterceptor {
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public boolean recentlyWrote(String userEmail) {
+        return recentWriters.getIfPresent(userEmail) != null;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        mark(request);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        mark(request);
+    }
+
+    private void mark(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS")) {
+            return;
+        }
+        if (request.getAttribute("userEmail") instanceof String userEmail) {
+            recentWriters.put(userEmail, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.farmtrak.config;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// With farmtrak.datasource.replica.url set, read-only transactions of API requests run on
+// a replica pool and everything else on the primary pool (see ReplicaRoutingDataSource).
+// The primary is still configured by spring.datasource.*; the replica takes its URL,
+// credentials and farmtrak.datasource.replica.hikari.* settings from its own keys and is
+// opened read-only. Two local PostgreSQL instances, one streaming from the other, are
+// enough to try it: point the replica URL at the standby.
+@Configuration
+@ConditionalOnExpression("!'${farmtrak.datasource.replica.url:}'.isEmpty()")
+public class ReplicaRoutingConfig implements WebMvcConfigurer {
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReplicaRoutingConfig(@Value("${farmtrak.datasource.replica.read-your-writes:5s}") Duration window) {
+        this.readYourWrites = new ReadYourWrites(window);
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("farmtrak.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${farmtrak.datasource.replica.url}") String url,
+                                              @Value("${farmtrak.datasource.replica.username:}") String username,
+                                              @Value("${farmtrak.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username.isEmpty() ? properties.determineUsername() : username)
+                .password(password.isEmpty() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites, meterRegistry));
+    }
+
+    // After AuthInterceptor, which sets the userEmail attribute
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWrites).addPathPatterns("/api/**").order(Ordered.LOWEST_PRECEDENCE);
+    }
+}
@@ -0,0 +1,59 @@
+package com.farmtrak.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Hands out replica connections to read-only transactions of API requests, and primary
+// connections to everything else. Work outside a request (the change stream sender, the
+// ingest writer, migrations) always uses the primary, as do the requests of users who
+// wrote within the read-your-writes window.
+//
+// The key is looked up when a connection is taken, so this must sit behind a
+// LazyConnectionDataSourceProxy: the transaction's read-only flag is only known after it
+// has begun.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReadYourWrites readYourWrites;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWrites readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        this.primaryRoutes = meterRegistry.counter("farmtrak.datasource.routed", "target", "primary");
+        this.replicaRoutes = meterRegistry.counter("farmtrak.datasource.routed", "target", "replica");
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = useReplica() ? Target.REPLICA : Target.PRIMARY;
+        (target == Target.REPLICA ? replicaRoutes : primaryRoutes).increment();
+        return target;
+    }
+
+    private boolean useReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return false;
+        }
+        return request.getAttribute("userEmail", RequestAttributes.SCOPE_REQUEST) instanceof String userEmail
+                && !readYourWrites.recentlyWrote(userEmail);
+    }
+}
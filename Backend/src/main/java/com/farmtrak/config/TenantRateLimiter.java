@@ -0,0 +1,95 @@
+package com.farmtrak.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Per-user token bucket for /api/**, run right after AuthInterceptor: a user may send
+// `burst` requests at once, refilled at `rate` per second, and gets 429 with Retry-After
+// beyond that. A bucket is a single AtomicLong holding the time at which it is full again,
+// so taking a token is one compare-and-set and no lock. A bucket left idle for
+// burst / rate seconds is full, so it is dropped then and recreated on the next request.
+@Component
+public class TenantRateLimiter implements HandlerInterceptor {
+
+    private final long interval;
+    private final long capacity;
+    private final Cache<Long, AtomicLong> buckets;
+    private final Counter allowed;
+    private final Counter limited;
+
+    public TenantRateLimiter(@Value("${farmtrak.admission.rate:20}") double rate,
+                             @Value("${farmtrak.admission.burst:60}") int burst,
+                             @Value("${farmtrak.admission.max-users:100000}") long maxUsers,
+                             MeterRegistry meterRegistry) {
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.capacity = interval * burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofNanos(Math.max(capacity, TimeUnit.SECONDS.toNanos(1))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+        this.allowed = decisions(meterRegistry, "allowed");
+        this.limited = decisions(meterRegistry, "limited");
+    }
+
+    // Takes a token; returns 0 when the request may go ahead, or else the nanoseconds
+    // until the bucket holds one again
+    public long tryAcquire(Long tenantId) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(tenantId, id -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now > 0 ? fullAt : now) + interval;
+            if (next - now > capacity) {
+                limited.increment();
+                return next - now - capacity;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (request.getMethod().equals("OPTIONS") || !(request.getAttribute("tenantId") instanceof Long tenantId)) {
+            return true;
+        }
+        long wait = tryAcquire(tenantId);
+        if (wait == 0) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(wait)));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests");
+        return false;
+    }
+
+    static long retryAfterSeconds(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Counter decisions(MeterRegistry registry, String decision) {
+        return Counter.builder("farmtrak.admission.decisions")
+                .description("Requests let through or refused by the per-user rate limit")
+                .tag("decision", decision)
+                .register(registry);
+    }
+}
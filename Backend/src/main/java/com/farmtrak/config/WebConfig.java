@@ -1,65 +1,75 @@
 package com.farmtrak.config;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.dto.DeletedRow;
+import com.farmtrak.dto.EggRow;
+import com.farmtrak.dto.ExpenseRow;
+import com.farmtrak.dto.FeedRecordRow;
+import com.farmtrak.dto.FlockRow;
+import com.farmtrak.dto.RevenueRow;
+import com.farmtrak.metrics.RequestMetricsInterceptor;
+import com.farmtrak.service.TenantService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-
+// The row records are built by the queries and serialized by reflection, and reach both
+// only through Class arguments, so the native image build is told about them here
 @Configuration
+@RegisterReflectionForBinding({ExpenseRow.class, RevenueRow.class, FeedRecordRow.class, FlockRow.class,
+        EggRow.class, DeletedRow.class})
 public class WebConfig implements WebMvcConfigurer {
 
+    private final TokenVerifier tokenVerifier;
+    private final TenantService tenants;
+    private final MeterRegistry meterRegistry;
+    private final TenantRateLimiter rateLimiter;
+    private final FairRequestQueue fairQueue;
+    private final boolean admission;
+
+    public WebConfig(TokenVerifier tokenVerifier, TenantService tenants, MeterRegistry meterRegistry,
+                     TenantRateLimiter rateLimiter, FairRequestQueue fairQueue,
+                     @Value("${farmtrak.admission.enabled:true}") boolean admission) {
+        this.tokenVerifier = tokenVerifier;
+        this.tenants = tenants;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.fairQueue = fairQueue;
+        this.admission = admission;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
                 .allowedOrigins("https://farmtrak.onrender.com", "https://pavankasala.github.io", "http://localhost:5173")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders(HttpHeaders.SET_COOKIE)
+                .exposedHeaders(HttpHeaders.SET_COOKIE, HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER,
+                        "X-Next-Cursor")
                 .allowCredentials(true);
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
 
-        registry.addInterceptor(new HandlerInterceptor() {
-            @Override
-            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-                
-                
-                if (request.getMethod().equals("OPTIONS")) {
-                    return true;
-                }
-
-                String authHeader = request.getHeader("Authorization");
-                if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                    response.sendError(HttpStatus.UNAUTHORIZED.value(), "Missing or invalid Authorization header");
-                    return false;
-                }
-
-                String idToken = authHeader.substring(7); 
-                
-                try {
-                    FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-                    
-                    String email = decodedToken.getEmail();
-                    request.setAttribute("userEmail", email);
-                    
-                    return true; 
-                } catch (Exception e) {
-                 
-                    response.sendError(HttpStatus.UNAUTHORIZED.value(), "Invalid Firebase token: " + e.getMessage());
-                    return false;
-                }
-            }
-        }).addPathPatterns("/api/**"); 
+        registry.addInterceptor(new RequestMetricsInterceptor(meterRegistry)).addPathPatterns("/api/**");
+        registry.addInterceptor(new AuthInterceptor(tokenVerifier, tenants, meterRegistry)).addPathPatterns("/api/**");
+        if (admission) {
+            registry.addInterceptor(rateLimiter).addPathPatterns("/api/**");
+            // Full-list and aggregate GETs wait in the fair queue; keyset pages and writes do not
+            registry.addInterceptor(fairQueue).addPathPatterns("/api/dashboard", "/api/analytics/**",
+                    "/api/export/**", "/api/changes", "/api/expenses", "/api/revenue", "/api/flocks",
+                    "/api/feed-records", "/api/feed-records/forecast", "/api/eggs", "/api/eggs/trend",
+                    "/api/eggs/monthly");
+        }
 
 
 
@@ -69,6 +79,8 @@ public class WebConfig implements WebMvcConfigurer {
                 response.setHeader("X-Content-Type-Options", "nosniff");
                 response.setHeader("X-Frame-Options", "SAMEORIGIN");
                 response.setHeader("X-XSS-Protection", "1; mode=block");
+                // Bodies come as JSON, CBOR or Smile depending on Accept
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
                 return true;
             }
         });
@@ -0,0 +1,54 @@
+package com.farmtrak.controllers;
+
+import java.time.YearMonth;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.farmtrak.dto.ProfitabilityReport;
+import com.farmtrak.service.ProfitabilityService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "https://pavankasala.github.io")
+public class AnalyticsController {
+
+    private static final int MAX_MONTHS = 60;
+
+    private final ProfitabilityService profitability;
+
+    @Autowired
+    public AnalyticsController(ProfitabilityService profitability) {
+        this.profitability = profitability;
+    }
+
+    // Cost per egg, revenue per bird and margin per flock and month, for the months from
+    // "from" to "to" inclusive (yyyy-MM). Defaults to the last 12 months up to this one.
+    // Not read-only, so it runs on the primary: months computed here are memoized until a
+    // write invalidates them, and one computed from a lagging replica would outlive that.
+    @GetMapping("/profitability")
+    @Transactional
+    public ProfitabilityReport getProfitability(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        YearMonth last = to != null ? to : YearMonth.now();
+        YearMonth first = from != null ? from : last.minusMonths(11);
+        if (first.isAfter(last) || first.plusMonths(MAX_MONTHS - 1L).isBefore(last)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from must not be after to, and the range must be at most " + MAX_MONTHS + " months");
+        }
+        return profitability.report(userEmail, first, last);
+    }
+}
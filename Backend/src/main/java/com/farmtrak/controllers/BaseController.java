@@ -1,67 +1,189 @@
 package com.farmtrak.controllers;
 
+import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.BiConsumer;
+import java.util.Set;
 
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.farmtrak.dto.ChangedRow;
+import com.farmtrak.dto.ListRow;
 import com.farmtrak.model.BaseEntity;
 import com.farmtrak.repository.BaseRepository;
+import com.farmtrak.repository.DatedRepository;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.ListCache;
 
 import jakarta.servlet.http.HttpServletRequest;
 
-public abstract class BaseController<T extends BaseEntity, ID> {
+// T is the entity the write endpoints take and return; R is the read-only row the list
+// endpoint returns for it (see ListRow)
+public abstract class BaseController<T extends BaseEntity, R extends ListRow, ID> {
     
     private final BaseRepository<T, ID> repository;
-    private final BiConsumer<T, T> updateFunction;
+    private final OwnedUpdate<T, ID> ownedUpdate;
+    private final OwnedDelete<ID> ownedDelete;
+    private final ListCache listCache;
+    private final ChangeFeedService changeFeed;
+    private final String resource;
+    private final Class<R> rowType;
 
-    protected BaseController(BaseRepository<T, ID> repository, BiConsumer<T, T> updateFunction) {
+    // Single-statement writes that only touch the row when it belongs to the given tenant.
+    // They return one ChangedRow per affected row, so an empty list means nothing matched.
+    @FunctionalInterface
+    protected interface OwnedUpdate<T, ID> {
+        List<ChangedRow> apply(ID id, Long tenantId, T updated);
+    }
+
+    @FunctionalInterface
+    protected interface OwnedDelete<ID> {
+        List<ChangedRow> apply(ID id, Long tenantId);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected BaseController(BaseRepository<T, ID> repository, OwnedUpdate<T, ID> ownedUpdate,
+                             OwnedDelete<ID> ownedDelete, ListCache listCache, ChangeFeedService changeFeed) {
         this.repository = repository;
-        this.updateFunction = updateFunction;
+        this.ownedUpdate = ownedUpdate;
+        this.ownedDelete = ownedDelete;
+        this.listCache = listCache;
+        this.changeFeed = changeFeed;
+        Class<?>[] types = GenericTypeResolver.resolveTypeArguments(getClass(), BaseController.class);
+        this.resource = types[0].getSimpleName();
+        this.rowType = (Class<R>) types[1];
     }
 
     @GetMapping
-    public List<T> getAll(HttpServletRequest request) { 
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<R>> getAll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail"); 
-        return repository.findByUserEmail(userEmail);
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        ListPage page = ListPage.of(from, to, after, limit);
+        if (page == null) {
+            return listCache.get(resource, userEmail, () -> repository.findByTenantId(tenantId, rowType))
+                    .toResponse(request);
+        }
+        if (!page.hasDateRange()) {
+            return page.respond(repository.findByTenantIdAndIdGreaterThanOrderById(
+                    tenantId, page.afterId(), page.fetch(), rowType));
+        }
+        if (!(repository instanceof DatedRepository<T, ID> dated)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "This resource cannot be filtered by date");
+        }
+        return page.respond(dated.findByTenantIdAndDateBetweenAndIdGreaterThanOrderById(
+                tenantId, page.from(), page.to(), page.afterId(), page.fetch(), rowType));
     }
 
     @PostMapping
+    @Transactional
     public T create(@RequestBody T entity, HttpServletRequest request) { 
         String userEmail = (String) request.getAttribute("userEmail");
         entity.setUserEmail(userEmail);
-        return repository.save(entity);
+        entity.setTenantId((Long) request.getAttribute("tenantId"));
+        entity.setChangeVersion(changeFeed.nextVersion(userEmail));
+        T saved = repository.saveAndFlush(entity);
+        afterWrite(userEmail, datesOf(saved));
+        afterSave(userEmail, saved);
+        listCache.invalidate(resource, userEmail);
+        return saved;
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public T update(@PathVariable ID id, @RequestBody T updated, HttpServletRequest request) { 
         String userEmail = (String) request.getAttribute("userEmail"); 
-        return repository.findById(id)
-                .map(existing -> {
-                    if (!existing.getUserEmail().equals(userEmail)) {
-                        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
-                    }
-                    updateFunction.accept(existing, updated);
-                    return repository.save(existing);
-                })
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found"));
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        updated.setChangeVersion(changeFeed.nextVersion(userEmail));
+        List<ChangedRow> changed = ownedUpdate.apply(id, tenantId, updated);
+        if (changed.isEmpty()) {
+            throw notChanged(id);
+        }
+        updated.setId(changed.get(0).getId());
+        updated.setUserEmail(userEmail);
+        updated.setTenantId(tenantId);
+        Set<LocalDate> dates = previousDates(changed);
+        dates.addAll(datesOf(updated));
+        afterWrite(userEmail, dates);
+        afterSave(userEmail, updated);
+        listCache.invalidate(resource, userEmail);
+        return updated;
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void delete(@PathVariable ID id, HttpServletRequest request) { 
         String userEmail = (String) request.getAttribute("userEmail"); 
-        T entity = repository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found"));
-        if (!entity.getUserEmail().equals(userEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        long version = changeFeed.nextVersion(userEmail);
+        List<ChangedRow> changed = ownedDelete.apply(id, tenantId);
+        if (changed.isEmpty()) {
+            throw notChanged(id);
+        }
+        changeFeed.recordDeletes(userEmail, resource, changed.stream().map(ChangedRow::getId).toList(), version);
+        afterWrite(userEmail, previousDates(changed));
+        changed.forEach(row -> afterDelete(userEmail, row.getId()));
+        listCache.invalidate(resource, userEmail);
+    }
+
+    // The day a row counts towards in per-day derived data, or null if the resource has none
+    protected LocalDate dateOf(T entity) {
+        return null;
+    }
+
+    // Called inside the write transaction, once the change is flushed, with every day
+    // the write added a row to or removed a row from
+    protected void afterWrite(String userEmail, Set<LocalDate> dates) {
+    }
+
+    // Called after afterWrite with the row as created or updated
+    protected void afterSave(String userEmail, T saved) {
+    }
+
+    // Called after afterWrite with the id of each row a delete removed
+    protected void afterDelete(String userEmail, Long id) {
+    }
+
+    private Set<LocalDate> datesOf(T entity) {
+        Set<LocalDate> dates = new HashSet<>();
+        LocalDate date = dateOf(entity);
+        if (date != null) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    private Set<LocalDate> previousDates(List<ChangedRow> changed) {
+        Set<LocalDate> dates = new HashSet<>();
+        for (ChangedRow row : changed) {
+            if (row.getPreviousDate() != null) {
+                dates.add(row.getPreviousDate());
+            }
         }
-        repository.deleteById(id);
+        return dates;
+    }
+
+    // Only reached when the conditional write matched nothing, to tell the two cases apart
+    private ResponseStatusException notChanged(ID id) {
+        return repository.existsById(id)
+                ? new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied")
+                : new ResponseStatusException(HttpStatus.NOT_FOUND, "Entity not found");
     }
-}
\ No newline at end of file
+}
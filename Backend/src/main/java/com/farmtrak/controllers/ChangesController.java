@@ -0,0 +1,51 @@
+package com.farmtrak.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.farmtrak.dto.ChangeSet;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.ChangeStream;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Delta sync: a client keeps its own copy of the lists and asks only for what changed
+// after the version it last saw. Without "since" the response holds every row.
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = "https://pavankasala.github.io")
+public class ChangesController {
+
+    private final ChangeFeedService changeFeed;
+    private final ChangeStream changeStream;
+
+    @Autowired
+    public ChangesController(ChangeFeedService changeFeed, ChangeStream changeStream) {
+        this.changeFeed = changeFeed;
+        this.changeStream = changeStream;
+    }
+
+    @GetMapping
+    public ChangeSet getChanges(@RequestParam(name = "since", defaultValue = "-1") long since,
+                                HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        return changeFeed.changesSince(userEmail, since);
+    }
+
+    // Last-Event-ID is sent by EventSource-style clients when they reconnect
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(name = "since", required = false) Long since,
+                             @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId,
+                             HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        long from = lastEventId != null ? lastEventId : since != null ? since : -1;
+        return changeStream.subscribe(userEmail, from);
+    }
+}
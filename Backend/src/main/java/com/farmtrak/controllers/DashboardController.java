@@ -0,0 +1,99 @@
+package com.farmtrak.controllers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.farmtrak.dto.CategoryTotal;
+import com.farmtrak.dto.DailyTotal;
+import com.farmtrak.dto.DashboardSummary;
+import com.farmtrak.repository.DailyEggRollupRepository;
+import com.farmtrak.repository.DailyExpenseRollupRepository;
+import com.farmtrak.repository.DailyRevenueRollupRepository;
+import com.farmtrak.repository.FlockRepository;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(origins = "https://pavankasala.github.io")
+public class DashboardController {
+
+    private static final int MAX_DAYS = 366;
+
+    private final FlockRepository flockRepo;
+    private final DailyExpenseRollupRepository expenseRollupRepo;
+    private final DailyEggRollupRepository eggRollupRepo;
+    private final DailyRevenueRollupRepository revenueRollupRepo;
+
+    @Autowired
+    public DashboardController(FlockRepository flockRepo, DailyExpenseRollupRepository expenseRollupRepo,
+                               DailyEggRollupRepository eggRollupRepo,
+                               DailyRevenueRollupRepository revenueRollupRepo) {
+        this.flockRepo = flockRepo;
+        this.expenseRollupRepo = expenseRollupRepo;
+        this.eggRollupRepo = eggRollupRepo;
+        this.revenueRollupRepo = revenueRollupRepo;
+    }
+
+    // Totals and chart series are read from the daily rollup tables, so the work done
+    // depends on the number of days and categories, not on the length of the history.
+    @GetMapping
+    @Transactional(readOnly = true)
+    public DashboardSummary getSummary(@RequestParam(name = "days", defaultValue = "7") int days,
+                                       HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        if (days < 1 || days > MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days must be between 1 and " + MAX_DAYS);
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(days - 1L);
+
+        long totalBirds = flockRepo.sumNumBirdsByTenantId((Long) request.getAttribute("tenantId"));
+        long eggsToday = eggRollupRepo.sumCountByUserEmailAndDate(userEmail, today);
+        double totalExpenses = expenseRollupRepo.sumAmountByUserEmail(userEmail);
+        double totalRevenue = revenueRollupRepo.sumAmountByUserEmail(userEmail);
+
+        Map<LocalDate, Number> eggsByDate = toMap(eggRollupRepo.findDailyTotalsSince(userEmail, from));
+        Map<LocalDate, Number> revenueByDate = toMap(revenueRollupRepo.sumAmountByDateSince(userEmail, from));
+        List<DashboardSummary.DailyPoint> dailySeries = new ArrayList<>(days);
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            Number eggs = eggsByDate.get(date);
+            Number revenue = revenueByDate.get(date);
+            dailySeries.add(new DashboardSummary.DailyPoint(date,
+                    eggs == null ? 0 : eggs.longValue(),
+                    revenue == null ? 0 : revenue.doubleValue()));
+        }
+
+        // The rollups already report blank and null categories as "Other"
+        List<DashboardSummary.CategoryPoint> expensesByCategory = new ArrayList<>();
+        for (CategoryTotal row : expenseRollupRepo.sumAmountByCategory(userEmail)) {
+            expensesByCategory.add(new DashboardSummary.CategoryPoint(row.getCategory(),
+                    row.getTotal() == null ? 0 : row.getTotal()));
+        }
+
+        return new DashboardSummary(totalBirds, eggsToday, totalExpenses, totalRevenue,
+                totalRevenue - totalExpenses, dailySeries, expensesByCategory);
+    }
+
+    private static Map<LocalDate, Number> toMap(List<DailyTotal> rows) {
+        Map<LocalDate, Number> map = new HashMap<>();
+        for (DailyTotal row : rows) {
+            map.put(row.getDate(), row.getTotal());
+        }
+        return map;
+    }
+}
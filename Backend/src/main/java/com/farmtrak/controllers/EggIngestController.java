@@ -0,0 +1,78 @@
+package com.farmtrak.controllers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.farmtrak.dto.IngestEntry;
+import com.farmtrak.dto.IngestReceipt;
+import com.farmtrak.ingest.EggIngestService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Write-behind counterpart of POST /api/eggs and /api/eggs/bulk for counters that post
+// often. Answers 202 once the entries are in the ingest log; they show up in the lists
+// after the next flush. merge has the same meaning as on /api/eggs. A request's entries
+// are taken all or none: on 503 the client sends them all again after Retry-After.
+@RestController
+@RequestMapping("/api/eggs/ingest")
+@CrossOrigin(origins = "https://pavankasala.github.io")
+@ConditionalOnProperty(name = "farmtrak.ingest.enabled", havingValue = "true")
+public class EggIngestController {
+
+    private static final int MAX_ENTRIES = 5000;
+
+    private final EggIngestService ingest;
+    private final String retryAfterSeconds;
+
+    @Autowired
+    public EggIngestController(EggIngestService ingest,
+                               @Value("${farmtrak.ingest.flush-interval:5s}") Duration flushInterval) {
+        this.ingest = ingest;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, flushInterval.toSeconds()));
+    }
+
+    @PostMapping
+    public ResponseEntity<IngestReceipt> ingest(@RequestBody List<IngestEntry> entries,
+                                                @RequestParam(name = "merge", defaultValue = "false") boolean merge,
+                                                HttpServletRequest request) throws InterruptedException {
+        String userEmail = (String) request.getAttribute("userEmail");
+        if (entries.size() > MAX_ENTRIES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_ENTRIES + " entries can be sent at once");
+        }
+        LocalDate today = LocalDate.now();
+        for (IngestEntry entry : entries) {
+            if (entry.getFlockId() == null || entry.getCount() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every entry needs a flockId and a count");
+            }
+            if (entry.getDate() == null) {
+                entry.setDate(today);
+            }
+        }
+        // Stricter than /api/eggs: days about to be archived are refused too, with 409
+        // (ArchivedEntriesException)
+        long lastSequence = ingest.acceptAll(userEmail, entries, merge);
+        if (lastSequence < 0) {
+            // None of the entries are in; the client resends them all
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                    .body(new IngestReceipt(0, 0));
+        }
+        return ResponseEntity.accepted().body(new IngestReceipt(entries.size(), lastSequence));
+    }
+}
@@ -1,13 +1,19 @@
 package com.farmtrak.controllers;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,8 +26,18 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.farmtrak.dto.EggChangedRow;
+import com.farmtrak.dto.EggRow;
+import com.farmtrak.dto.EggTrend;
+import com.farmtrak.dto.FlockMonthTotal;
 import com.farmtrak.model.EggProduction;
+import com.farmtrak.repository.EggMonthlyTotalRepository;
 import com.farmtrak.repository.EggProductionRepository;
+import com.farmtrak.service.DailyRollupService;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.EggSeriesIndex;
+import com.farmtrak.service.ListCache;
+import com.farmtrak.service.PartitionMaintenanceService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -30,93 +46,229 @@ import jakarta.servlet.http.HttpServletRequest;
 @CrossOrigin(origins = "https://pavankasala.github.io")
 public class EggProductionController {
 
+    private static final int MAX_BULK_ENTRIES = 5000;
+    private static final int MAX_MONTHS = 120;
+    private static final int MAX_TREND_DAYS = 366;
+    private static final String RESOURCE = "EggProduction";
+
     private final EggProductionRepository eggRepo;
+    private final DailyRollupService rollups;
+    private final ListCache listCache;
+    private final ChangeFeedService changeFeed;
+    private final EggMonthlyTotalRepository monthlyRepo;
+    private final PartitionMaintenanceService partitions;
+    private final EggSeriesIndex eggIndex;
     private final Logger logger = LoggerFactory.getLogger(EggProductionController.class);
 
     @Autowired
-    public EggProductionController(EggProductionRepository eggRepo) {
+    public EggProductionController(EggProductionRepository eggRepo, DailyRollupService rollups,
+                                   ListCache listCache, ChangeFeedService changeFeed,
+                                   EggMonthlyTotalRepository monthlyRepo, PartitionMaintenanceService partitions,
+                                   EggSeriesIndex eggIndex) {
         this.eggRepo = eggRepo;
+        this.changeFeed = changeFeed;
+        this.rollups = rollups;
+        this.listCache = listCache;
+        this.monthlyRepo = monthlyRepo;
+        this.partitions = partitions;
+        this.eggIndex = eggIndex;
     }
 
     @PostMapping
+    @Transactional
     public EggProduction saveProduction(@RequestBody EggProduction eggProduction,
                                         @RequestParam(name = "merge", defaultValue = "false") boolean merge,
                                         HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail"); 
+        // Without a flock the upsert has nothing to conflict on, as NULLs are distinct in the unique key
+        if (eggProduction.getFlockId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A flockId is required");
+        }
         if (eggProduction.getDate() == null) {
             eggProduction.setDate(LocalDate.now());
         }
         eggProduction.setUserEmail(userEmail);
+        requireRaw(eggProduction.getDate());
+        Long tenantId = (Long) request.getAttribute("tenantId");
 
-        Optional<EggProduction> existing = eggRepo.findByFlockIdAndDateAndUserEmail(
-                eggProduction.getFlockId(), eggProduction.getDate(), userEmail);
-
-        // ... (rest of the method is the same)
-        EggProduction result;
-        if (existing.isPresent()) {
-            EggProduction existingProd = existing.get();
-            if (merge) {
-                existingProd.setCount(existingProd.getCount() + eggProduction.getCount());
-            } else {
-                existingProd.setCount(eggProduction.getCount());
+        long version = changeFeed.nextVersion(userEmail);
+        EggProduction result = eggRepo.upsert(userEmail, tenantId, eggProduction, merge, version);
+        rollups.refreshEggs(userEmail, List.of(result.getDate()));
+        listCache.invalidate(RESOURCE, userEmail);
+        eggIndex.recordStored(tenantId, version, List.of(result));
+        logger.debug("Saved EggProduction: id={}, flockId={}, count={}, date={}, merge={}, userEmail={}",
+                result.getId(), result.getFlockId(), result.getCount(), result.getDate(), merge, result.getUserEmail());
+
+        return result;
+    }
+
+    // Same semantics as saveProduction for many entries at once, in one transaction
+    @PostMapping("/bulk")
+    @Transactional
+    public List<EggProduction> saveProductionBulk(@RequestBody List<EggProduction> entries,
+                                                  @RequestParam(name = "merge", defaultValue = "false") boolean merge,
+                                                  HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        if (entries.size() > MAX_BULK_ENTRIES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BULK_ENTRIES + " entries can be saved at once");
+        }
+        for (EggProduction entry : entries) {
+            if (entry.getFlockId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every entry needs a flockId");
+            }
+            if (entry.getDate() == null) {
+                entry.setDate(LocalDate.now());
             }
-            result = eggRepo.save(existingProd);
-            logger.info("Updated EggProduction: id={}, flockId={}, count={}, date={}, userEmail={}",
-                    result.getId(), result.getFlockId(), result.getCount(), result.getDate(), result.getUserEmail());
-        } else {
-            result = eggRepo.save(eggProduction);
-            logger.info("Saved new EggProduction: id={}, flockId={}, count={}, date={}, userEmail={}",
-                    result.getId(), result.getFlockId(), result.getCount(), result.getDate(), result.getUserEmail());
+            requireRaw(entry.getDate());
         }
 
+        long version = changeFeed.nextVersion(userEmail);
+        List<EggProduction> result = eggRepo.upsertAll(userEmail, tenantId, entries, merge, version);
+        List<LocalDate> dates = new ArrayList<>(result.size());
+        result.forEach(row -> dates.add(row.getDate()));
+        rollups.refreshEggs(userEmail, dates);
+        listCache.invalidate(RESOURCE, userEmail);
+        eggIndex.recordStored(tenantId, version, result);
+        logger.debug("Bulk saved EggProduction: entries={}, rows={}, merge={}, userEmail={}",
+                entries.size(), result.size(), merge, userEmail);
         return result;
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public EggProduction updateProduction(@PathVariable Long id, @RequestBody EggProduction updated,
                                           HttpServletRequest request) { 
         String userEmail = (String) request.getAttribute("userEmail"); 
-        return eggRepo.findById(id)
-                .map(prod -> {
-                    if (!prod.getUserEmail().equals(userEmail)) {
-                        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to update this record.");
-                    }
-                    prod.setFlockId(updated.getFlockId());
-                    prod.setCount(updated.getCount());
-                    prod.setDate(updated.getDate());
-                    return eggRepo.save(prod);
-                })
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "EggProduction not found"));
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        requireRaw(updated.getDate());
+        updated.setChangeVersion(changeFeed.nextVersion(userEmail));
+        List<EggChangedRow> changed;
+        try {
+            changed = eggRepo.updateOwned(id, tenantId, updated);
+        } catch (DataIntegrityViolationException e) {
+            // The flock already has a row for the new date
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Flock " + updated.getFlockId() + " already has a count for " + updated.getDate());
+        }
+        if (changed.isEmpty()) {
+            throw notChanged(id, "update");
+        }
+        updated.setId(id);
+        updated.setUserEmail(userEmail);
+        updated.setTenantId(tenantId);
+        List<LocalDate> dates = new ArrayList<>(2);
+        dates.add(changed.get(0).getPreviousDate());
+        dates.add(updated.getDate());
+        rollups.refreshEggs(userEmail, dates);
+        listCache.invalidate(RESOURCE, userEmail);
+        eggIndex.recordCleared(tenantId, updated.getChangeVersion(), changed.get(0).getPreviousFlockId(),
+                changed.get(0).getPreviousDate());
+        eggIndex.recordStored(tenantId, updated.getChangeVersion(), List.of(updated));
+        return updated;
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteProduction(@PathVariable Long id, HttpServletRequest request) { 
         String userEmail = (String) request.getAttribute("userEmail"); 
-        EggProduction prod = eggRepo.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "EggProduction not found"));
-        if (!prod.getUserEmail().equals(userEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to delete this record.");
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        long version = changeFeed.nextVersion(userEmail);
+        List<EggChangedRow> changed = eggRepo.deleteOwned(id, tenantId);
+        if (changed.isEmpty()) {
+            throw notChanged(id, "delete");
         }
-        eggRepo.deleteById(id);
+        changeFeed.recordDeletes(userEmail, RESOURCE, List.of(id), version);
+        rollups.refreshEggs(userEmail, Collections.singletonList(changed.get(0).getPreviousDate()));
+        listCache.invalidate(RESOURCE, userEmail);
+        eggIndex.recordCleared(tenantId, version, changed.get(0).getPreviousFlockId(), changed.get(0).getPreviousDate());
     }
 
     @GetMapping("/today")
-    public List<EggProduction> getTodayProduction(HttpServletRequest request) { 
-        String userEmail = (String) request.getAttribute("userEmail"); 
-        return eggRepo.findByUserEmailAndDate(userEmail, LocalDate.now());
+    @Transactional(readOnly = true)
+    public List<EggRow> getTodayProduction(HttpServletRequest request) { 
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        return eggRepo.findByTenantIdAndDate(tenantId, LocalDate.now(), EggRow.class);
     }
 
     @GetMapping
-    public List<EggProduction> getAll(HttpServletRequest request) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<EggRow>> getAll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail");
-        return eggRepo.findByUserEmail(userEmail);
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        ListPage page = ListPage.of(from, to, after, limit);
+        if (page == null) {
+            return listCache.get(RESOURCE, userEmail, () -> eggRepo.findByTenantId(tenantId, EggRow.class))
+                    .toResponse(request);
+        }
+        if (!page.hasDateRange()) {
+            return page.respond(eggRepo.findByTenantIdAndIdGreaterThanOrderById(
+                    tenantId, page.afterId(), page.fetch(), EggRow.class));
+        }
+        return page.respond(eggRepo.findByTenantIdAndDateBetweenAndIdGreaterThanOrderById(
+                tenantId, page.from(), page.to(), page.afterId(), page.fetch(), EggRow.class));
     }
 
     @GetMapping("/exists")
+    @Transactional(readOnly = true)
     public boolean checkIfExists(@RequestParam Long flockId, @RequestParam String date,
                                  HttpServletRequest request) { 
-        String userEmail = (String) request.getAttribute("userEmail");
+        Long tenantId = (Long) request.getAttribute("tenantId");
         LocalDate localDate = LocalDate.parse(date);
-        return eggRepo.findByFlockIdAndDateAndUserEmail(flockId, localDate, userEmail).isPresent();
+        return eggRepo.existsByTenantIdAndFlockIdAndDate(tenantId, flockId, localDate);
+    }
+
+    // Daily eggs per flock over the last `days` days up to today, with the moving average
+    // over the last `window` of them and the laying rate, served from EggSeriesIndex
+    @GetMapping("/trend")
+    @Transactional(readOnly = true)
+    public EggTrend getTrend(@RequestParam(name = "days", defaultValue = "30") int days,
+                             @RequestParam(name = "window", defaultValue = "7") int window,
+                             HttpServletRequest request) {
+        if (days < 1 || days > MAX_TREND_DAYS || window < 1 || window > days) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "days must be between 1 and " + MAX_TREND_DAYS + ", and window between 1 and days");
+        }
+        LocalDate today = LocalDate.now();
+        return eggIndex.trend((Long) request.getAttribute("tenantId"), today.minusDays(days - 1L), today, window);
+    }
+
+    // Eggs per flock and month from "from" to "to" inclusive (yyyy-MM), including months
+    // whose daily rows were compacted into monthly totals. Defaults to the last 12 months.
+    @GetMapping("/monthly")
+    @Transactional(readOnly = true)
+    public List<FlockMonthTotal> getMonthly(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+            HttpServletRequest request) {
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        YearMonth last = to != null ? to : YearMonth.now();
+        YearMonth first = from != null ? from : last.minusMonths(11);
+        if (first.isAfter(last) || first.plusMonths(MAX_MONTHS - 1L).isBefore(last)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from must not be after to, and the range must be at most " + MAX_MONTHS + " months");
+        }
+        return monthlyRepo.findFlockMonthTotals(tenantId, first.atDay(1), last.plusMonths(1).atDay(1));
+    }
+
+    // Days of compacted months only exist as monthly totals and cannot be written any more
+    private void requireRaw(LocalDate date) {
+        if (partitions.isArchived(date)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Egg records before " + partitions.archivedBefore() + " are archived as monthly totals");
+        }
+    }
+
+    // Only reached when the conditional write matched nothing, to tell the two cases apart
+    private ResponseStatusException notChanged(Long id, String action) {
+        return eggRepo.existsById(id)
+                ? new ResponseStatusException(HttpStatus.FORBIDDEN, "You are not authorized to " + action + " this record.")
+                : new ResponseStatusException(HttpStatus.NOT_FOUND, "EggProduction not found");
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,38 @@
 package com.farmtrak.controllers;
 
+import com.farmtrak.dto.ExpenseRow;
 import com.farmtrak.model.Expense;
 import com.farmtrak.repository.ExpenseRepository;
+import com.farmtrak.service.DailyRollupService;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.ListCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/expenses")
 @CrossOrigin(origins = "https://pavankasala.github.io")
-public class ExpenseController extends BaseController<Expense, Long> {
+public class ExpenseController extends BaseController<Expense, ExpenseRow, Long> {
+
+    private final DailyRollupService rollups;
 
     @Autowired
-    public ExpenseController(ExpenseRepository repository) {
-        super(repository, (existing, updated) -> {
-            existing.setCategory(updated.getCategory());
-            existing.setAmount(updated.getAmount());
-            existing.setDate(updated.getDate());
-            existing.setNotes(updated.getNotes());
-            existing.setPaid(updated.isPaid());
-        });
+    public ExpenseController(ExpenseRepository repository, DailyRollupService rollups, ListCache listCache,
+                             ChangeFeedService changeFeed) {
+        super(repository, repository::updateOwned, repository::deleteOwned, listCache, changeFeed);
+        this.rollups = rollups;
+    }
+
+    @Override
+    protected LocalDate dateOf(Expense entity) {
+        return entity.getDate();
+    }
+
+    @Override
+    protected void afterWrite(String userEmail, Set<LocalDate> dates) {
+        rollups.refreshExpenses(userEmail, dates);
     }
 }
\ No newline at end of file
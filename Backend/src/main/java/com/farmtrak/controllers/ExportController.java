@@ -0,0 +1,151 @@
+package com.farmtrak.controllers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.farmtrak.dto.EggRow;
+import com.farmtrak.dto.ExpenseRow;
+import com.farmtrak.dto.RevenueRow;
+import com.farmtrak.repository.EggMonthlyTotalRepository;
+import com.farmtrak.repository.EggProductionRepository;
+import com.farmtrak.repository.ExpenseRepository;
+import com.farmtrak.repository.RevenueRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Full-history exports written row by row to the response, so memory use does not
+// depend on how many rows a user has. Rows are read-only projections, so the persistence
+// context stays empty however many are written. Egg exports start
+// with the months compacted into monthly totals, one row per flock and month without an
+// id, dated the first of the month.
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "https://pavankasala.github.io")
+public class ExportController {
+
+    private static final String[] EXPENSE_COLUMNS = {"id", "date", "category", "amount", "paid", "notes"};
+    private static final String[] REVENUE_COLUMNS = {"id", "date", "category", "amount", "notes"};
+    private static final String[] EGG_COLUMNS = {"id", "date", "flockId", "count"};
+
+    private final ExpenseRepository expenseRepo;
+    private final RevenueRepository revenueRepo;
+    private final EggProductionRepository eggRepo;
+    private final EggMonthlyTotalRepository monthlyRepo;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportController(ExpenseRepository expenseRepo, RevenueRepository revenueRepo,
+                            EggProductionRepository eggRepo, EggMonthlyTotalRepository monthlyRepo,
+                            ObjectMapper objectMapper) {
+        this.expenseRepo = expenseRepo;
+        this.revenueRepo = revenueRepo;
+        this.eggRepo = eggRepo;
+        this.monthlyRepo = monthlyRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/{resource}")
+    @Transactional(readOnly = true)
+    public void export(@PathVariable String resource,
+                       @RequestParam(name = "format", defaultValue = "ndjson") String format,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+
+        switch (resource) {
+            case "expenses" -> {
+                try (Stream<ExpenseRow> rows = expenseRepo.streamByTenantIdOrderByDateAscIdAsc(tenantId,
+                        ExpenseRow.class)) {
+                    write(rows, resource, csv, EXPENSE_COLUMNS, e -> new Object[] {
+                            e.id(), e.date(), e.category(), e.amount(), e.paid(), e.notes()}, response);
+                }
+            }
+            case "revenue" -> {
+                try (Stream<RevenueRow> rows = revenueRepo.streamByTenantIdOrderByDateAscIdAsc(tenantId,
+                        RevenueRow.class)) {
+                    write(rows, resource, csv, REVENUE_COLUMNS, r -> new Object[] {
+                            r.id(), r.date(), r.category(), r.amount(), r.notes()}, response);
+                }
+            }
+            case "eggs" -> {
+                Stream<EggRow> archived = monthlyRepo.streamByTenantId(tenantId)
+                        .map(total -> new EggRow(null, (int) total.getCount(), total.getMonth(), total.getFlockId(), 0));
+                try (Stream<EggRow> rows = Stream.concat(archived,
+                        eggRepo.streamByTenantIdOrderByDateAscIdAsc(tenantId, EggRow.class))) {
+                    write(rows, resource, csv, EGG_COLUMNS, e -> new Object[] {
+                            e.id(), e.date(), e.flockId(), e.count()}, response);
+                }
+            }
+            default -> throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown export resource");
+        }
+    }
+
+    private <T> void write(Stream<T> rows, String resource, boolean csv, String[] columns,
+                           Function<T, Object[]> toRow, HttpServletResponse response) throws IOException {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + resource + (csv ? ".csv" : ".ndjson") + "\"");
+
+        OutputStream out = response.getOutputStream();
+        Iterator<T> it = rows.iterator();
+        if (csv) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writeCsvLine(writer, columns);
+            while (it.hasNext()) {
+                writeCsvLine(writer, toRow.apply(it.next()));
+            }
+            writer.flush();
+        } else {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            }
+        }
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,22 +1,52 @@
 package com.farmtrak.controllers;
 
+import com.farmtrak.dto.FeedForecast;
+import com.farmtrak.dto.FeedRecordRow;
 import com.farmtrak.model.FeedRecord;
 import com.farmtrak.repository.FeedRecordRepository;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.FeedForecastService;
+import com.farmtrak.service.ListCache;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/feed-records")
 @CrossOrigin(origins = "https://pavankasala.github.io")
-public class FeedRecordController extends BaseController<FeedRecord, Long> {
+public class FeedRecordController extends BaseController<FeedRecord, FeedRecordRow, Long> {
+
+    private final FeedForecastService forecasts;
 
     @Autowired
-    public FeedRecordController(FeedRecordRepository repository) {
-        super(repository, (existing, updated) -> {
-            existing.setBirdName(updated.getBirdName());
-            existing.setNumBirds(updated.getNumBirds());
-            existing.setTotalFeedGiven(updated.getTotalFeedGiven());
-            existing.setDaysLasted(updated.getDaysLasted());
-        });
+    public FeedRecordController(FeedRecordRepository repository, ListCache listCache,
+                                ChangeFeedService changeFeed, FeedForecastService forecasts) {
+        super(repository, repository::updateOwned, repository::deleteOwned, listCache, changeFeed);
+        this.forecasts = forecasts;
+    }
+
+    // Per-flock daily feed needs from the recorded consumption rates; with stockKg, also
+    // how many days the farm's feed on hand lasts
+    @GetMapping("/forecast")
+    @Transactional(readOnly = true)
+    public FeedForecast forecast(@RequestParam(required = false) Double stockKg, HttpServletRequest request) {
+        String userEmail = (String) request.getAttribute("userEmail");
+        if (stockKg != null && stockKg < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stockKg must not be negative");
+        }
+        return forecasts.forecast(userEmail, stockKg);
+    }
+
+    @Override
+    protected void afterSave(String userEmail, FeedRecord saved) {
+        forecasts.recordSaved(userEmail, saved);
+    }
+
+    @Override
+    protected void afterDelete(String userEmail, Long id) {
+        forecasts.recordDeleted(userEmail, id);
     }
-}
\ No newline at end of file
+}
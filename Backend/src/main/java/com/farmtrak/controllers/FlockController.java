@@ -4,7 +4,10 @@ import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,11 +16,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.farmtrak.dto.FlockRow;
 import com.farmtrak.model.Flock;
 import com.farmtrak.repository.FlockRepository;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.EggSeriesIndex;
+import com.farmtrak.service.ListCache;
+import com.farmtrak.service.ProfitabilityService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -26,57 +35,101 @@ import jakarta.servlet.http.HttpServletRequest;
 @CrossOrigin(origins = "https://pavankasala.github.io")
 public class FlockController {
 
+    private static final String RESOURCE = "Flock";
+
     private final FlockRepository flockRepo;
+    private final ListCache listCache;
+    private final ChangeFeedService changeFeed;
+    private final ProfitabilityService profitability;
+    private final EggSeriesIndex eggIndex;
 
     @Autowired
-    public FlockController(FlockRepository flockRepo) {
+    public FlockController(FlockRepository flockRepo, ListCache listCache, ChangeFeedService changeFeed,
+                           ProfitabilityService profitability, EggSeriesIndex eggIndex) {
         this.flockRepo = flockRepo;
+        this.changeFeed = changeFeed;
+        this.listCache = listCache;
+        this.profitability = profitability;
+        this.eggIndex = eggIndex;
     }
 
+    // from/to filter on the flock's start date
     @GetMapping
-    public List<Flock> getAll(HttpServletRequest request) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<FlockRow>> getAll(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail");
-        return flockRepo.findByUserEmail(userEmail);
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        ListPage page = ListPage.of(from, to, after, limit);
+        if (page == null) {
+            return listCache.get(RESOURCE, userEmail, () -> flockRepo.findByTenantId(tenantId, FlockRow.class))
+                    .toResponse(request);
+        }
+        if (!page.hasDateRange()) {
+            return page.respond(flockRepo.findByTenantIdAndIdGreaterThanOrderById(
+                    tenantId, page.afterId(), page.fetch(), FlockRow.class));
+        }
+        return page.respond(flockRepo.findByTenantIdAndStartDateBetweenAndIdGreaterThanOrderById(
+                tenantId, page.from(), page.to(), page.afterId(), page.fetch(), FlockRow.class));
     }
 
     @PostMapping
+    @Transactional
     public Flock create(@RequestBody Flock flock, HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail");
         flock.setUserEmail(userEmail);
+        flock.setTenantId((Long) request.getAttribute("tenantId"));
         if (flock.getStartDate() == null) {
             flock.setStartDate(LocalDate.now());
         }
-        return flockRepo.save(flock);
+        flock.setChangeVersion(changeFeed.nextVersion(userEmail));
+        Flock saved = flockRepo.save(flock);
+        listCache.invalidate(RESOURCE, userEmail);
+        // Bird counts and start dates decide every month's cost allocation
+        profitability.invalidateAll(userEmail);
+        eggIndex.recordFlock(saved.getTenantId(), saved);
+        return saved;
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public Flock update(@PathVariable Long id, @RequestBody Flock updated, HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail");
-        return flockRepo.findById(id)
-                .map(existing -> {
-                    if (!existing.getUserEmail().equals(userEmail)) {
-                        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
-                    }
-                    existing.setAge(updated.getAge());
-                    existing.setNumBirds(updated.getNumBirds());
-                    existing.setBirdType(updated.getBirdType());
-                    existing.setCustomBird(updated.getCustomBird());
-                    if (updated.getStartDate() != null) {
-                        existing.setStartDate(updated.getStartDate());
-                    }
-                    return flockRepo.save(existing);
-                })
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flock not found"));
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        updated.setChangeVersion(changeFeed.nextVersion(userEmail));
+        List<Flock> changed = flockRepo.updateOwned(id, tenantId, updated);
+        if (changed.isEmpty()) {
+            throw notChanged(id);
+        }
+        listCache.invalidate(RESOURCE, userEmail);
+        profitability.invalidateAll(userEmail);
+        eggIndex.recordFlock(tenantId, changed.get(0));
+        return changed.get(0);
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void delete(@PathVariable Long id, HttpServletRequest request) {
         String userEmail = (String) request.getAttribute("userEmail");
-        Flock flock = flockRepo.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Flock not found"));
-        if (!flock.getUserEmail().equals(userEmail)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied");
+        Long tenantId = (Long) request.getAttribute("tenantId");
+        long version = changeFeed.nextVersion(userEmail);
+        if (flockRepo.deleteOwned(id, tenantId) == 0) {
+            throw notChanged(id);
         }
-        flockRepo.deleteById(id);
+        changeFeed.recordDeletes(userEmail, RESOURCE, List.of(id), version);
+        listCache.invalidate(RESOURCE, userEmail);
+        profitability.invalidateAll(userEmail);
+        eggIndex.recordFlockDeleted(tenantId, version, id);
+    }
+
+    // Only reached when the conditional write matched nothing, to tell the two cases apart
+    private ResponseStatusException notChanged(Long id) {
+        return flockRepo.existsById(id)
+                ? new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied")
+                : new ResponseStatusException(HttpStatus.NOT_FOUND, "Flock not found");
     }
-}
\ No newline at end of file
+}
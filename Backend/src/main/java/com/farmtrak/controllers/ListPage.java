@@ -0,0 +1,80 @@
+package com.farmtrak.controllers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.farmtrak.dto.ListRow;
+
+// Optional ?from=&to=&after=&limit= parameters shared by the list endpoints.
+// Without any of them a list endpoint returns the user's full list exactly as before.
+// With them it returns one keyset page ordered by id; when more rows follow, the
+// X-Next-Cursor header carries the id to pass as "after" for the next page.
+final class ListPage {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_LIMIT = 1000;
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long afterId;
+    private final int pageSize;
+
+    private ListPage(LocalDate from, LocalDate to, long afterId, int pageSize) {
+        this.from = from;
+        this.to = to;
+        this.afterId = afterId;
+        this.pageSize = pageSize;
+    }
+
+    // Returns null when the request uses none of the listing parameters
+    static ListPage of(LocalDate from, LocalDate to, Long after, Integer limit) {
+        if (from == null && to == null && after == null && limit == null) {
+            return null;
+        }
+        if (limit != null && limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        int pageSize = limit == null ? MAX_LIMIT : Math.min(limit, MAX_LIMIT);
+        return new ListPage(from, to, after == null ? 0L : after, pageSize);
+    }
+
+    boolean hasDateRange() {
+        return from != null || to != null;
+    }
+
+    LocalDate from() {
+        return from != null ? from : LocalDate.of(1, 1, 1);
+    }
+
+    LocalDate to() {
+        return to != null ? to : LocalDate.of(9999, 12, 31);
+    }
+
+    long afterId() {
+        return afterId;
+    }
+
+    // One extra row is fetched to find out whether another page exists
+    Pageable fetch() {
+        return PageRequest.of(0, pageSize + 1);
+    }
+
+    <T extends ListRow> ResponseEntity<List<T>> respond(List<T> rows) {
+        if (rows.size() <= pageSize) {
+            return ResponseEntity.ok(rows);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.get(pageSize - 1).id()))
+                .body(page);
+    }
+}
@@ -1,21 +1,37 @@
 package com.farmtrak.controllers;
 
+import com.farmtrak.dto.RevenueRow;
 import com.farmtrak.model.Revenue;
 import com.farmtrak.repository.RevenueRepository;
+import com.farmtrak.service.DailyRollupService;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.ListCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/revenue")
-public class RevenueController extends BaseController<Revenue, Long> {
+public class RevenueController extends BaseController<Revenue, RevenueRow, Long> {
+
+    private final DailyRollupService rollups;
 
     @Autowired
-    public RevenueController(RevenueRepository repository) {
-        super(repository, (existing, updated) -> {
-            existing.setCategory(updated.getCategory());
-            existing.setAmount(updated.getAmount());
-            existing.setDate(updated.getDate());
-            existing.setNotes(updated.getNotes());
-        });
+    public RevenueController(RevenueRepository repository, DailyRollupService rollups, ListCache listCache,
+                             ChangeFeedService changeFeed) {
+        super(repository, repository::updateOwned, repository::deleteOwned, listCache, changeFeed);
+        this.rollups = rollups;
+    }
+
+    @Override
+    protected LocalDate dateOf(Revenue entity) {
+        return entity.getDate();
+    }
+
+    @Override
+    protected void afterWrite(String userEmail, Set<LocalDate> dates) {
+        rollups.refreshRevenue(userEmail, dates);
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.farmtrak.dto;
+
+// Projection for "SUM(amount) GROUP BY category" queries
+public interface CategoryTotal {
+    String getCategory();
+    Double getTotal();
+}
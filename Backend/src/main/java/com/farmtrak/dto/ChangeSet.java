@@ -0,0 +1,29 @@
+package com.farmtrak.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Response of /api/changes: every row created or updated after the requested version,
+// plus tombstones for deleted rows. Tombstones name their resource by entity name
+// ("Expense", "EggProduction", ...). Pass "version" as "since" on the next call.
+@Data
+@AllArgsConstructor
+public class ChangeSet {
+    private long version;
+    private List<ExpenseRow> expenses;
+    private List<RevenueRow> revenue;
+    private List<FeedRecordRow> feedRecords;
+    private List<FlockRow> flocks;
+    private List<EggRow> eggs;
+    private List<DeletedRow> deleted;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return expenses.isEmpty() && revenue.isEmpty() && feedRecords.isEmpty() && flocks.isEmpty()
+                && eggs.isEmpty() && deleted.isEmpty();
+    }
+}
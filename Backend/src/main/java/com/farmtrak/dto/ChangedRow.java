@@ -0,0 +1,10 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+// Projection for conditional "UPDATE/DELETE ... RETURNING" queries: one per affected row,
+// with the day the row counted towards before the change (null for undated resources)
+public interface ChangedRow {
+    Long getId();
+    LocalDate getPreviousDate();
+}
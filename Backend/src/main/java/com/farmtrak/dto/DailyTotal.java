@@ -0,0 +1,9 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+// Projection for "SUM(...) GROUP BY date" queries
+public interface DailyTotal {
+    LocalDate getDate();
+    Number getTotal();
+}
@@ -0,0 +1,41 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummary {
+    private long totalBirds;
+    private long eggsToday;
+    private double totalExpenses;
+    private double totalRevenue;
+    private double profit;
+    private List<DailyPoint> dailySeries;
+    private List<CategoryPoint> expensesByCategory;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyPoint {
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private LocalDate date;
+        private long eggs;
+        private double revenue;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryPoint {
+        private String category;
+        private double total;
+    }
+}
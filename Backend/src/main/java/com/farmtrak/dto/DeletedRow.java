@@ -0,0 +1,5 @@
+package com.farmtrak.dto;
+
+// Read-only form of a ChangeTombstone, as /api/changes returns it
+public record DeletedRow(String resource, Long entityId, long changeVersion) {
+}
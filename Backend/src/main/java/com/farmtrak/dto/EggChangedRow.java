@@ -0,0 +1,6 @@
+package com.farmtrak.dto;
+
+// ChangedRow for egg rows, which also report the flock the row counted towards before the change
+public interface EggChangedRow extends ChangedRow {
+    Long getPreviousFlockId();
+}
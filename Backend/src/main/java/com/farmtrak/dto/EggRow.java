@@ -0,0 +1,10 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+// id is null for the rows of archived months in egg exports
+public record EggRow(Long id, int count, @JsonFormat(pattern = "yyyy-MM-dd") LocalDate date, Long flockId,
+                     long changeVersion) implements ListRow {
+}
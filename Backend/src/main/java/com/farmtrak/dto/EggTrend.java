@@ -0,0 +1,41 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Egg counts over the days from "from" to "to" inclusive. movingAverage is eggs per day
+// over the last `window` of those days; layingRate is eggs per bird per day over all of them.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EggTrend {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate from;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate to;
+    private int window;
+    private long total;
+    private double movingAverage;
+    private double layingRate;
+    private List<FlockTrend> flocks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FlockTrend {
+        private Long flockId;
+        private int numBirds;
+        private long total;
+        private double movingAverage;
+        // 0 when the flock has no birds on record
+        private double layingRate;
+        // One count per day from "from" to "to"
+        private int[] daily;
+    }
+}
@@ -0,0 +1,10 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+public record ExpenseRow(Long id, String category, double amount,
+                         @JsonFormat(pattern = "yyyy-MM-dd") LocalDate date, String notes, boolean paid,
+                         long changeVersion) implements ListRow {
+}
@@ -0,0 +1,51 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedForecast {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate asOf;
+    // kg per day across all flocks with a known rate
+    private double farmDailyKg;
+    // Only set when the request gave the feed in stock
+    private Double stockKg;
+    private Double daysUntilEmpty;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate runOutDate;
+    private List<BirdRate> rates;
+    private List<FlockForecast> flocks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BirdRate {
+        private String birdName;
+        private int records;
+        private double kgPerBirdPerDay;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FlockForecast {
+        private Long flockId;
+        private String birdName;
+        private int numBirds;
+        private int ageWeeks;
+        // null when there are no usable feed records at all
+        private Double kgPerBirdPerDay;
+        private Double dailyKg;
+        // How long the latest feed given to this bird type lasts the flock at its current size and age
+        private Double daysUntilEmpty;
+    }
+}
@@ -0,0 +1,5 @@
+package com.farmtrak.dto;
+
+public record FeedRecordRow(Long id, String birdName, int numBirds, double totalFeedGiven, int daysLasted,
+                            long changeVersion) implements ListRow {
+}
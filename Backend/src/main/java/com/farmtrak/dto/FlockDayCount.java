@@ -0,0 +1,15 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// One egg_production row reduced to what EggSeriesIndex keeps of it
+@Data
+@AllArgsConstructor
+public class FlockDayCount {
+    private Long flockId;
+    private LocalDate date;
+    private int count;
+}
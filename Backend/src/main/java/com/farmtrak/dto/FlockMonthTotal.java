@@ -0,0 +1,13 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+// Projection for eggs per flock and month across raw and compacted months. month is the
+// first day of the month; archived is true when some of the month was compacted.
+public interface FlockMonthTotal {
+    LocalDate getMonth();
+    Long getFlockId();
+    long getCount();
+    long getEntries();
+    boolean isArchived();
+}
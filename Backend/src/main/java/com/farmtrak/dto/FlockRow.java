@@ -0,0 +1,7 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+public record FlockRow(Long id, int numBirds, String birdType, String customBird, LocalDate startDate, int age,
+                       long changeVersion) implements ListRow {
+}
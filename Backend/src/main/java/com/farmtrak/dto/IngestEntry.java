@@ -0,0 +1,21 @@
+package com.farmtrak.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One entry posted to /api/eggs/ingest. count is boxed, unlike EggProduction's, so an
+// entry without one is refused instead of being taken as 0.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestEntry {
+    private Long flockId;
+    private Integer count;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate date;
+}
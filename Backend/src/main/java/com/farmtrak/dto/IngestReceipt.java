@@ -0,0 +1,14 @@
+package com.farmtrak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Acknowledges entries that are on disk and will be written to the database by the next flush
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestReceipt {
+    private int accepted;
+    private long lastSequence;
+}
@@ -0,0 +1,9 @@
+package com.farmtrak.dto;
+
+// A row as the read endpoints return it: a record holding just the entity's visible
+// attributes, selected straight into new instances by the query. Nothing is added to
+// the persistence context or checked for changes, and nothing stays attached to a
+// session once the query is done.
+public interface ListRow {
+    Long id();
+}
@@ -0,0 +1,49 @@
+package com.farmtrak.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfitabilityReport {
+    private List<MonthProfit> months;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MonthProfit {
+        @JsonFormat(pattern = "yyyy-MM")
+        private YearMonth month;
+        private long eggs;
+        private double expenses;
+        private double revenue;
+        private double margin;
+        // null when no eggs were logged in the month
+        private Double costPerEgg;
+        private List<FlockProfit> flocks;
+    }
+
+    // Expenses and revenue are recorded per farm; a flock is allocated its share of the
+    // month's totals in proportion to its bird-days in that month
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FlockProfit {
+        private Long flockId;
+        private int numBirds;
+        private long birdDays;
+        private long eggs;
+        private double expenses;
+        private double revenue;
+        private double margin;
+        private Double costPerEgg;
+        private Double revenuePerBird;
+    }
+}
@@ -0,0 +1,16 @@
+package com.farmtrak.ingest;
+
+import java.time.LocalDate;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// An entry is dated before EggIngestService.acceptsFrom(), so its month is archived, or
+// about to be, as monthly totals
+@ResponseStatus(value = HttpStatus.CONFLICT, reason = "Egg entries this old are archived as monthly totals")
+public class ArchivedEntriesException extends RuntimeException {
+
+    public ArchivedEntriesException(LocalDate acceptsFrom) {
+        super("Egg entries before " + acceptsFrom + " are archived, or about to be, as monthly totals");
+    }
+}
@@ -0,0 +1,210 @@
+package com.farmtrak.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Append-only log of accepted egg entries, kept in segment files named after their first
+// sequence number. Every record is framed as [length][crc32][payload]. append() writes a
+// whole request's records and forces them to disk once before it returns. A torn or
+// corrupt tail, as left by a crash mid-write, is cut off when the log is opened.
+//
+// The writer rolls to a new segment whenever it takes the pending entries for a flush;
+// the sealed segments are deleted once that flush has committed. Not thread-safe: the
+// caller serializes access.
+final class EggIngestLog implements Closeable {
+
+    private static final String PREFIX = "eggs-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    private final Path dir;
+    private final List<Path> sealed = new ArrayList<>();
+    private final Logger logger = LoggerFactory.getLogger(EggIngestLog.class);
+    private FileChannel active;
+    private Path activePath;
+    private long nextSequence;
+
+    EggIngestLog(Path dir) {
+        this.dir = dir;
+    }
+
+    // Reads the records of every existing segment, oldest first, and seals those segments.
+    // New records are numbered after the highest of the records read and afterSequence.
+    List<IngestRecord> open(long afterSequence) throws IOException {
+        Files.createDirectories(dir);
+        List<IngestRecord> records = new ArrayList<>();
+        long last = afterSequence;
+        for (Path segment : segments()) {
+            for (IngestRecord record : read(segment)) {
+                records.add(record);
+                last = Math.max(last, record.sequence());
+            }
+            sealed.add(segment);
+        }
+        nextSequence = last + 1;
+        openActive();
+        return records;
+    }
+
+    long nextSequence() {
+        return nextSequence;
+    }
+
+    // The records must be numbered from nextSequence() on, in order
+    void append(List<IngestRecord> records) {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        int bytes = 0;
+        for (IngestRecord record : records) {
+            if (record.sequence() != nextSequence + payloads.size()) {
+                throw new IllegalArgumentException("Record " + record.sequence() + " is out of sequence");
+            }
+            byte[] payload = encode(record);
+            payloads.add(payload);
+            bytes += HEADER_BYTES + payload.length;
+        }
+        ByteBuffer frames = ByteBuffer.allocate(bytes);
+        for (byte[] payload : payloads) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            frames.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        frames.flip();
+        try {
+            long start = active.size();
+            try {
+                while (frames.hasRemaining()) {
+                    active.write(frames);
+                }
+                active.force(false);
+            } catch (IOException e) {
+                // Cut off the partial frames, so later records are not hidden behind them
+                active.truncate(start);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to " + activePath, e);
+        }
+        nextSequence += records.size();
+    }
+
+    long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    // Seals the active segment and starts a new one; returns every sealed segment
+    List<Path> roll() throws IOException {
+        if (active.size() > 0) {
+            active.close();
+            sealed.add(activePath);
+            openActive();
+        }
+        return List.copyOf(sealed);
+    }
+
+    void delete(List<Path> segments) throws IOException {
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+            sealed.remove(segment);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    private void openActive() throws IOException {
+        activePath = dir.resolve(String.format("%s%020d%s", PREFIX, nextSequence, SUFFIX));
+        active = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private List<IngestRecord> read(Path segment) throws IOException {
+        List<IngestRecord> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            long good = 0;
+            while (true) {
+                header.clear();
+                if (channel.read(header, good) < HEADER_BYTES) {
+                    break;
+                }
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (channel.read(payload, good + HEADER_BYTES) < length) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                records.add(decode(payload.array()));
+                good += HEADER_BYTES + length;
+            }
+            if (good < channel.size()) {
+                logger.warn("Dropping {} bytes of incomplete records at the end of {}", channel.size() - good, segment);
+                channel.truncate(good);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    private static byte[] encode(IngestRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(record.sequence());
+            out.writeUTF(record.userEmail());
+            out.writeLong(record.flockId());
+            out.writeLong(record.date().toEpochDay());
+            out.writeInt(record.count());
+            out.writeBoolean(record.merge());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static IngestRecord decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new IngestRecord(in.readLong(), in.readUTF(), in.readLong(), LocalDate.ofEpochDay(in.readLong()),
+                    in.readInt(), in.readBoolean());
+        }
+    }
+}
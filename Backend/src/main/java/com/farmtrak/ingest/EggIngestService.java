@@ -0,0 +1,437 @@
+package com.farmtrak.ingest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.farmtrak.dto.IngestEntry;
+import com.farmtrak.model.EggProduction;
+import com.farmtrak.model.IngestCheckpoint;
+import com.farmtrak.model.IngestDeadLetter;
+import com.farmtrak.repository.EggProductionRepository;
+import com.farmtrak.repository.IngestCheckpointRepository;
+import com.farmtrak.repository.IngestDeadLetterRepository;
+import com.farmtrak.service.ChangeFeedService;
+import com.farmtrak.service.DailyRollupService;
+import com.farmtrak.service.EggSeriesIndex;
+import com.farmtrak.service.ListCache;
+import com.farmtrak.service.PartitionMaintenanceService;
+import com.farmtrak.service.TenantService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Write-behind ingestion for egg counts (farmtrak.ingest.enabled=true).
+//
+// acceptAll() appends a request's entries to the local EggIngestLog and returns once they
+// are on disk. Pending entries are coalesced in memory by (user, flock, date): merge
+// entries add up, and a replacing entry discards what came before it. A single writer
+// thread flushes everything pending every flush-interval, with the same upserts, change
+// versions, rollup refresh, cache invalidation and egg index updates as /api/eggs/bulk.
+// Database work therefore grows with the number of distinct flock-days per interval, not
+// with the request rate.
+//
+// Each user's rows are written in their own transaction, which also records the last log
+// sequence they cover in ingest_user_checkpoint; once every user of a flush is in,
+// ingest_checkpoint moves on for the node as a whole. A user whose rows fail
+// user-attempts times in a row has them moved to ingest_dead_letter, so one bad row
+// neither holds up other users nor keeps the pending entries from draining. Only rows
+// that cannot even be dead-lettered, as when the database is down, stay pending for the
+// next flush.
+//
+// Entries dated before where the archive horizon will be archive-margin from now are
+// refused, so a day is never compacted while entries for it wait. Any that still find
+// their month archived at flush, after flushes failed for that long, are dead-lettered.
+//
+// At most max-pending entries may be waiting; past that, acceptAll() waits up to
+// accept-timeout for a flush to make room and then refuses. On startup the log is
+// replayed from the checkpoints, so entries acknowledged before a crash are not lost
+// and entries already flushed are not applied twice.
+@Service
+@ConditionalOnProperty(name = "farmtrak.ingest.enabled", havingValue = "true")
+public class EggIngestService {
+
+    private static final String RESOURCE = "EggProduction";
+
+    private static final String SAVE_USER_CHECKPOINT =
+            "INSERT INTO ingest_user_checkpoint (node, user_email, last_sequence) VALUES (?, ?, ?) "
+            + "ON CONFLICT (node, user_email) DO UPDATE SET last_sequence = EXCLUDED.last_sequence";
+
+    private record Key(String userEmail, long flockId, LocalDate date) {
+    }
+
+    // base is the replacing count, or null when the entries only add to the stored count;
+    // entries is how many accepted entries were coalesced into it
+    private record Pending(Integer base, int delta, int entries) {
+
+        static Pending of(IngestRecord record) {
+            return record.merge() ? new Pending(null, record.count(), 1) : new Pending(record.count(), 0, 1);
+        }
+
+        Pending then(Pending later) {
+            return later.base != null
+                    ? new Pending(later.base, later.delta, entries + later.entries)
+                    : new Pending(base, delta + later.delta, entries + later.entries);
+        }
+    }
+
+    // The rows one user's transaction stored, for the egg index
+    private record Stored(Long tenantId, long version, List<EggProduction> rows) {
+    }
+
+    private final EggProductionRepository eggRepo;
+    private final IngestCheckpointRepository checkpoints;
+    private final IngestDeadLetterRepository deadLetters;
+    private final ChangeFeedService changeFeed;
+    private final DailyRollupService rollups;
+    private final ListCache listCache;
+    private final TenantService tenants;
+    private final PartitionMaintenanceService partitions;
+    private final EggSeriesIndex eggIndex;
+    private final TransactionTemplate transactions;
+    private final JdbcTemplate jdbc;
+    private final String node;
+    private final Duration acceptTimeout;
+    private final Duration archiveMargin;
+    private final int userAttempts;
+    private final EggIngestLog log;
+    private final Semaphore room;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "egg-ingest-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter flushedEntries;
+    private final Counter flushedRows;
+    private final Counter failedFlushes;
+    private final Counter archivedEntries;
+    private final Counter deadLetterRows;
+    private final Logger logger = LoggerFactory.getLogger(EggIngestService.class);
+
+    // Guarded by this
+    private Map<Key, Pending> pending = new HashMap<>();
+    private int pendingEntries;
+
+    public EggIngestService(EggProductionRepository eggRepo, IngestCheckpointRepository checkpoints,
+                            IngestDeadLetterRepository deadLetters, ChangeFeedService changeFeed,
+                            DailyRollupService rollups, ListCache listCache,
+                            TenantService tenants, PartitionMaintenanceService partitions,
+                            EggSeriesIndex eggIndex, TransactionTemplate transactions, JdbcTemplate jdbc,
+                            MeterRegistry meterRegistry,
+                            @Value("${farmtrak.ingest.dir:./data/ingest}") Path dir,
+                            @Value("${farmtrak.ingest.node:default}") String node,
+                            @Value("${farmtrak.ingest.max-pending:100000}") int maxPending,
+                            @Value("${farmtrak.ingest.accept-timeout:2s}") Duration acceptTimeout,
+                            @Value("${farmtrak.ingest.flush-interval:5s}") Duration flushInterval,
+                            @Value("${farmtrak.ingest.archive-margin:7d}") Duration archiveMargin,
+                            @Value("${farmtrak.ingest.user-attempts:3}") int userAttempts) throws IOException {
+        this.eggRepo = eggRepo;
+        this.checkpoints = checkpoints;
+        this.deadLetters = deadLetters;
+        this.changeFeed = changeFeed;
+        this.rollups = rollups;
+        this.listCache = listCache;
+        this.tenants = tenants;
+        this.partitions = partitions;
+        this.eggIndex = eggIndex;
+        this.transactions = transactions;
+        this.jdbc = jdbc;
+        this.node = node;
+        this.acceptTimeout = acceptTimeout;
+        this.archiveMargin = archiveMargin;
+        this.userAttempts = Math.max(1, userAttempts);
+
+        long checkpoint = checkpoints.findById(node).map(IngestCheckpoint::getLastSequence).orElse(0L);
+        Map<String, Long> userCheckpoints = new HashMap<>();
+        jdbc.query("SELECT user_email, last_sequence FROM ingest_user_checkpoint WHERE node = ?",
+                rs -> {
+                    userCheckpoints.put(rs.getString(1), rs.getLong(2));
+                }, node);
+        this.log = new EggIngestLog(dir);
+        int replayed = 0;
+        for (IngestRecord record : log.open(checkpoint)) {
+            if (record.sequence() > Math.max(checkpoint, userCheckpoints.getOrDefault(record.userEmail(), 0L))) {
+                add(record);
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} egg entries from {} after checkpoint {}", replayed, dir, checkpoint);
+        }
+        // Replayed entries count against the limit too, so this may start out negative
+        this.room = new Semaphore(maxPending - replayed);
+
+        Gauge.builder("farmtrak.ingest.pending.entries", this, EggIngestService::pendingEntries)
+                .description("Accepted egg entries not yet written to the database")
+                .register(meterRegistry);
+        Gauge.builder("farmtrak.ingest.pending.rows", this, EggIngestService::pendingRows)
+                .description("Distinct flock-days the pending entries coalesce to")
+                .register(meterRegistry);
+        this.flushedEntries = meterRegistry.counter("farmtrak.ingest.flushed.entries");
+        this.flushedRows = meterRegistry.counter("farmtrak.ingest.flushed.rows");
+        this.failedFlushes = meterRegistry.counter("farmtrak.ingest.flush.failures");
+        this.archivedEntries = meterRegistry.counter("farmtrak.ingest.archived.dead.letters");
+        this.deadLetterRows = meterRegistry.counter("farmtrak.ingest.dead.letters");
+
+        long interval = flushInterval.toMillis();
+        writer.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // First day entries are accepted for, or null when compaction is off
+    public LocalDate acceptsFrom() {
+        return partitions.archivedBefore(LocalDate.now().plusDays(archiveMargin.toDays()));
+    }
+
+    // Takes all of one request's entries, each with a flock, a count and a date, or none of
+    // them. They go to the log in one write with a single force, so a request costs one
+    // fsync however many entries it holds. Returns the last entry's log sequence, or -1
+    // when the queue had no room for them all within acceptTimeout. Throws
+    // ArchivedEntriesException when any entry is dated before acceptsFrom().
+    public long acceptAll(String userEmail, List<IngestEntry> entries, boolean merge) throws InterruptedException {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        LocalDate from = acceptsFrom();
+        for (IngestEntry entry : entries) {
+            if (from != null && entry.getDate().isBefore(from)) {
+                throw new ArchivedEntriesException(from);
+            }
+        }
+        if (!room.tryAcquire(entries.size(), acceptTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            return -1;
+        }
+        try {
+            synchronized (this) {
+                long first = log.nextSequence();
+                List<IngestRecord> records = new ArrayList<>(entries.size());
+                for (IngestEntry entry : entries) {
+                    records.add(new IngestRecord(first + records.size(), userEmail, entry.getFlockId(),
+                            entry.getDate(), entry.getCount(), merge));
+                }
+                log.append(records);
+                records.forEach(this::add);
+                return records.get(records.size() - 1).sequence();
+            }
+        } catch (RuntimeException e) {
+            room.release(entries.size());
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever does not make it in here is replayed from the log on the next start
+        flush();
+        synchronized (this) {
+            log.close();
+        }
+    }
+
+    synchronized int pendingEntries() {
+        return pendingEntries;
+    }
+
+    synchronized int pendingRows() {
+        return pending.size();
+    }
+
+    // Caller holds the monitor, or is the constructor
+    private void add(IngestRecord record) {
+        pending.merge(new Key(record.userEmail(), record.flockId(), record.date()), Pending.of(record), Pending::then);
+        pendingEntries++;
+    }
+
+    private synchronized void requeue(Map<Key, Pending> failed) {
+        // The failed entries are older than anything accepted since, so they go first
+        failed.forEach((key, older) -> {
+            pending.merge(key, older, (newer, old) -> old.then(newer));
+            pendingEntries += older.entries();
+        });
+    }
+
+    void flush() {
+        Map<Key, Pending> batch;
+        long lastSequence;
+        List<Path> segments;
+        synchronized (this) {
+            try {
+                segments = log.roll();
+                if (pending.isEmpty()) {
+                    // Left over from a start whose replayed entries were all flushed already
+                    log.delete(segments);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.error("Could not roll the egg ingest log", e);
+                return;
+            }
+            batch = pending;
+            lastSequence = log.lastSequence();
+            pending = new HashMap<>();
+            pendingEntries = 0;
+        }
+
+        Map<String, Map<Key, Pending>> byUser = new HashMap<>();
+        batch.forEach((key, value) -> byUser.computeIfAbsent(key.userEmail(), user -> new HashMap<>()).put(key, value));
+
+        Map<Key, Pending> failed = new HashMap<>();
+        int entries = 0;
+        for (Map.Entry<String, Map<Key, Pending>> user : byUser.entrySet()) {
+            if (flushUser(user.getKey(), user.getValue(), lastSequence)) {
+                for (Pending value : user.getValue().values()) {
+                    entries += value.entries();
+                }
+            } else {
+                failed.putAll(user.getValue());
+            }
+        }
+        flushedEntries.increment(entries);
+        flushedRows.increment(batch.size() - failed.size());
+        room.release(entries);
+        if (!failed.isEmpty()) {
+            failedFlushes.increment();
+            logger.error("{} egg ingest rows could not be written or dead-lettered, retrying with the next flush",
+                    failed.size());
+            requeue(failed);
+            // The segments stay until every entry in them is in
+            return;
+        }
+
+        try {
+            transactions.executeWithoutResult(status -> {
+                checkpoints.save(new IngestCheckpoint(node, lastSequence));
+                jdbc.update("DELETE FROM ingest_user_checkpoint WHERE node = ? AND last_sequence <= ?",
+                        node, lastSequence);
+            });
+        } catch (RuntimeException e) {
+            // Harmless: the user checkpoints make a replay skip what is in, and the next
+            // flush moves the node checkpoint on
+            logger.warn("Could not save the egg ingest checkpoint", e);
+            return;
+        }
+        synchronized (this) {
+            try {
+                log.delete(segments);
+            } catch (IOException e) {
+                // Harmless: the checkpoint makes a later replay skip these records
+                logger.warn("Could not delete flushed egg ingest segments", e);
+            }
+        }
+        logger.debug("Flushed {} egg entries as {} rows", entries, batch.size());
+    }
+
+    // Writes one user's rows, or else moves them to the dead-letter table. Returns false when
+    // neither could be done, and the rows are to be retried.
+    private boolean flushUser(String userEmail, Map<Key, Pending> rows, long lastSequence) {
+        Map<Key, Pending> writable = new HashMap<>();
+        Map<Key, Pending> archived = new HashMap<>();
+        // Only when compaction moved past the day while flushes kept failing
+        rows.forEach((key, value) -> (partitions.isArchived(key.date()) ? archived : writable).put(key, value));
+        List<IngestDeadLetter> archivedLetters = deadLetters(userEmail, archived, "The month is archived");
+
+        RuntimeException failure = null;
+        for (int attempt = 0; attempt < userAttempts; attempt++) {
+            try {
+                Stored stored = transactions.execute(status -> {
+                    Stored written = writable.isEmpty() ? null : write(userEmail, writable);
+                    deadLetters.saveAll(archivedLetters);
+                    jdbc.update(SAVE_USER_CHECKPOINT, node, userEmail, lastSequence);
+                    return written;
+                });
+                if (stored != null) {
+                    eggIndex.recordStored(stored.tenantId(), stored.version(), stored.rows());
+                }
+                if (!archivedLetters.isEmpty()) {
+                    logger.warn("Moved {} ingested egg rows of {} to ingest_dead_letter: their month is archived",
+                            archivedLetters.size(), userEmail);
+                    archivedEntries.increment(archivedLetters.size());
+                    deadLetterRows.increment(archivedLetters.size());
+                }
+                return true;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        logger.error("Egg ingest rows of {} failed {} times, moving {} rows to ingest_dead_letter",
+                userEmail, userAttempts, rows.size(), failure);
+        List<IngestDeadLetter> letters = deadLetters(userEmail, writable, String.valueOf(failure));
+        letters.addAll(archivedLetters);
+        try {
+            transactions.executeWithoutResult(status -> {
+                deadLetters.saveAll(letters);
+                jdbc.update(SAVE_USER_CHECKPOINT, node, userEmail, lastSequence);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Could not dead-letter the egg ingest rows of {}", userEmail, e);
+            return false;
+        }
+        deadLetterRows.increment(letters.size());
+        return true;
+    }
+
+    private List<IngestDeadLetter> deadLetters(String userEmail, Map<Key, Pending> rows, String error) {
+        Instant now = Instant.now();
+        String reason = error.length() > 1000 ? error.substring(0, 1000) : error;
+        List<IngestDeadLetter> letters = new ArrayList<>(rows.size());
+        rows.forEach((key, value) -> letters.add(new IngestDeadLetter(null, node, userEmail, key.flockId(),
+                key.date(), value.base(), value.delta(), reason, now)));
+        return letters;
+    }
+
+    private Stored write(String userEmail, Map<Key, Pending> rows) {
+        List<EggProduction> merges = new ArrayList<>();
+        List<EggProduction> replaces = new ArrayList<>();
+        Set<LocalDate> dates = new LinkedHashSet<>();
+        for (Map.Entry<Key, Pending> row : rows.entrySet()) {
+            Key key = row.getKey();
+            Pending value = row.getValue();
+            EggProduction entry = new EggProduction();
+            entry.setFlockId(key.flockId());
+            entry.setDate(key.date());
+            if (value.base() != null) {
+                entry.setCount(value.base() + value.delta());
+                replaces.add(entry);
+            } else {
+                entry.setCount(value.delta());
+                merges.add(entry);
+            }
+            dates.add(key.date());
+        }
+        long version = changeFeed.nextVersion(userEmail);
+        Long tenantId = tenants.idOf(userEmail);
+        List<EggProduction> stored = new ArrayList<>(eggRepo.upsertAll(userEmail, tenantId, merges, true, version));
+        stored.addAll(eggRepo.upsertAll(userEmail, tenantId, replaces, false, version));
+        rollups.refreshEggs(userEmail, dates);
+        listCache.invalidate(RESOURCE, userEmail);
+        return new Stored(tenantId, version, stored);
+    }
+}
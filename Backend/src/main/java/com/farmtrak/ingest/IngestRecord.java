@@ -0,0 +1,7 @@
+package com.farmtrak.ingest;
+
+import java.time.LocalDate;
+
+// One accepted egg entry as written to the ingest log
+record IngestRecord(long sequence, String userEmail, long flockId, LocalDate date, int count, boolean merge) {
+}
@@ -0,0 +1,79 @@
+package com.farmtrak.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+// Counts the SQL statements executed on the current thread through the application's
+// DataSource, whichever way they are sent: Hibernate, JdbcTemplate and plain JDBC alike.
+// Every execute* call is one, so a JDBC batch counts once however many rows it carries.
+// Wrapped around the "dataSource" bean by StatementCountingPostProcessor.
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    static final Class<?>[] PROXIED = {Connection.class, Statement.class, PreparedStatement.class,
+            CallableStatement.class};
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int count() {
+        return COUNT.get()[0];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    // createStatement, prepareStatement and prepareCall
+                    Class<?> type = method.getReturnType();
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(type)) {
+                        return counting(statement, type);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object counting(Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        COUNT.get()[0]++;
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
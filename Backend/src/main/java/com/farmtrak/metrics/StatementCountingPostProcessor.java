@@ -0,0 +1,37 @@
+package com.farmtrak.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.stereotype.Component;
+
+// Puts a StatementCountingDataSource around the "dataSource" bean, the one Hibernate and
+// JdbcTemplate share. Only that one: with a replica configured, the pools behind the
+// routing data source are reached through it and are not counted twice.
+@Component
+@ImportRuntimeHints(StatementCountingPostProcessor.ProxyHints.class)
+public class StatementCountingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (beanName.equals("dataSource") && bean instanceof DataSource dataSource
+                && !(bean instanceof StatementCountingDataSource)) {
+            return new StatementCountingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    // The native image build needs the JDK proxies declared up front
+    static class ProxyHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : StatementCountingDataSource.PROXIED) {
+                hints.proxies().registerJdkProxy(type);
+            }
+        }
+    }
+}
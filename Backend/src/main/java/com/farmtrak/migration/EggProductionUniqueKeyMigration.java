@@ -0,0 +1,68 @@
+package com.farmtrak.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Tables created before the unique (flock_id, date, user_email) key existed can hold
+// duplicate rows, left behind by concurrent read-modify-write saves. Those rows were
+// separate increments for the same flock and day, so they are summed into the oldest
+// row before the constraint is added. Hibernate's ddl-auto cannot add the constraint
+// while duplicates exist, which is why this runs as a separate step. It runs on startup
+// unless farmtrak.migrations.on-startup is off, and always with --migrate. It runs before
+// TenantMigration, whose (tenant_id, flock_id, date) key would reject the duplicates, and
+// has nothing to do once MonthlyPartitionMigration has rebuilt the table.
+@Component
+@Order(0)
+public class EggProductionUniqueKeyMigration implements ApplicationRunner {
+
+    static final String CONSTRAINT_NAME = "uk_egg_production_flock_date_user";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final boolean runOnStartup;
+    private final Logger logger = LoggerFactory.getLogger(EggProductionUniqueKeyMigration.class);
+
+    public EggProductionUniqueKeyMigration(JdbcTemplate jdbc, TransactionTemplate transactions,
+                                           @Value("${farmtrak.migrations.on-startup:true}") boolean runOnStartup) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.runOnStartup = runOnStartup;
+    }
+
+    // The transaction starts after the check, so a start with on-startup off opens no connection
+    @Override
+    public void run(ApplicationArguments args) {
+        if (runOnStartup) {
+            transactions.executeWithoutResult(status -> migrate());
+        }
+    }
+
+    private void migrate() {
+        Integer existing = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conname = ?", Integer.class, CONSTRAINT_NAME);
+        if ((existing != null && existing > 0) || MonthlyPartitionMigration.isPartitioned(jdbc, "egg_production")) {
+            return;
+        }
+
+        jdbc.execute("LOCK TABLE egg_production IN SHARE ROW EXCLUSIVE MODE");
+        int merged = jdbc.update(
+                "UPDATE egg_production e SET count = d.total "
+                + "FROM (SELECT MIN(id) AS keep_id, SUM(count) AS total FROM egg_production "
+                + "      GROUP BY flock_id, date, user_email HAVING COUNT(*) > 1) d "
+                + "WHERE e.id = d.keep_id");
+        int deleted = jdbc.update(
+                "DELETE FROM egg_production e USING egg_production k "
+                + "WHERE e.flock_id = k.flock_id AND e.date = k.date AND e.user_email = k.user_email "
+                + "AND e.id > k.id");
+        jdbc.execute("ALTER TABLE egg_production ADD CONSTRAINT " + CONSTRAINT_NAME
+                + " UNIQUE (flock_id, date, user_email)");
+        logger.info("Added {}: merged {} duplicate groups, deleted {} rows", CONSTRAINT_NAME, merged, deleted);
+    }
+}
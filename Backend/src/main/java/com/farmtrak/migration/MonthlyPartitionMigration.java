@@ -0,0 +1,123 @@
+package com.farmtrak.migration;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.farmtrak.service.PartitionMaintenanceService;
+
+// Rebuilds egg_production, expense and revenue as tables range-partitioned by month on
+// their date column (see PartitionMaintenanceService). Hibernate cannot create
+// partitioned tables, so each one is renamed aside, recreated with a default partition
+// and one partition per month that has rows or is coming up, refilled and given back
+// the keys and indexes its entity declares.
+//
+// The primary key of a partitioned table has to include the partition key, and date is
+// nullable, so these tables have none; ids come from a sequence of their own and are
+// indexed for lookups by id. egg_production's months keep the hash split on tenant_id
+// it had before, one level down (see PartitionMaintenanceService).
+//
+// Runs once per table, after TenantMigration, and then starts the first maintenance run.
+@Component
+@Order(2)
+public class MonthlyPartitionMigration implements ApplicationRunner {
+
+    private static final Map<String, List<String>> INDEXES = Map.of(
+            "egg_production", List.of(
+                    "ALTER TABLE egg_production ADD CONSTRAINT uk_egg_production_tenant_flock_date "
+                            + "UNIQUE (tenant_id, flock_id, date)",
+                    "CREATE INDEX idx_egg_production_tenant_date_id ON egg_production (tenant_id, date, id)",
+                    "CREATE INDEX idx_egg_production_tenant_id ON egg_production (tenant_id, id)",
+                    "CREATE INDEX idx_egg_production_tenant_change_version ON egg_production (tenant_id, change_version)"),
+            "expense", List.of(
+                    "CREATE INDEX idx_expense_tenant_date_id ON expense (tenant_id, date, id)",
+                    "CREATE INDEX idx_expense_tenant_id ON expense (tenant_id, id)",
+                    "CREATE INDEX idx_expense_tenant_change_version ON expense (tenant_id, change_version)"),
+            "revenue", List.of(
+                    "CREATE INDEX idx_revenue_tenant_date_id ON revenue (tenant_id, date, id)",
+                    "CREATE INDEX idx_revenue_tenant_id ON revenue (tenant_id, id)",
+                    "CREATE INDEX idx_revenue_tenant_change_version ON revenue (tenant_id, change_version)"));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final PartitionMaintenanceService maintenance;
+    private final boolean runOnStartup;
+    private final int monthsAhead;
+    private final Logger logger = LoggerFactory.getLogger(MonthlyPartitionMigration.class);
+
+    public MonthlyPartitionMigration(JdbcTemplate jdbc, TransactionTemplate transactions,
+                                     PartitionMaintenanceService maintenance,
+                                     @Value("${farmtrak.migrations.on-startup:true}") boolean runOnStartup,
+                                     @Value("${farmtrak.partitions.months-ahead:3}") int monthsAhead) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.maintenance = maintenance;
+        this.runOnStartup = runOnStartup;
+        this.monthsAhead = monthsAhead;
+    }
+
+    // True once the table has been rebuilt with any kind of partitioning
+    static boolean isPartitioned(JdbcTemplate jdbc, String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass(?) AND relkind = 'p')",
+                Boolean.class, table));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!runOnStartup) {
+            return;
+        }
+        for (String table : PartitionMaintenanceService.TABLES) {
+            if (!PartitionMaintenanceService.isRangePartitioned(jdbc, table)) {
+                transactions.executeWithoutResult(status -> partition(table));
+            }
+        }
+        maintenance.maintain();
+    }
+
+    private void partition(String table) {
+        long started = System.currentTimeMillis();
+        String old = table + "_unpartitioned";
+        String sequence = table + "_row_id_seq";
+        jdbc.execute("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE");
+        jdbc.execute("ALTER TABLE " + table + " RENAME TO " + old);
+        jdbc.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        // A sequence left owned by the old table would be dropped with it
+        jdbc.execute("ALTER SEQUENCE " + sequence + " OWNED BY NONE");
+        jdbc.queryForList("SELECT setval('" + sequence + "', COALESCE((SELECT MAX(id) FROM " + old + "), 0) + 1, false)");
+
+        jdbc.execute("CREATE TABLE " + table + " (LIKE " + old + " INCLUDING DEFAULTS) PARTITION BY RANGE (date)");
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        maintenance.addDefault(table);
+        TreeSet<YearMonth> months = new TreeSet<>();
+        jdbc.queryForList("SELECT DISTINCT CAST(date_trunc('month', date) AS date) FROM " + old
+                + " WHERE date IS NOT NULL", Date.class).forEach(date -> months.add(YearMonth.from(date.toLocalDate())));
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(YearMonth.now().plusMonths(i));
+        }
+        for (YearMonth month : months) {
+            maintenance.addMonth(table, month);
+        }
+        int rows = jdbc.update("INSERT INTO " + table + " SELECT * FROM " + old);
+
+        jdbc.execute("DROP TABLE " + old);
+        jdbc.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+        jdbc.execute("CREATE INDEX idx_" + table + "_id ON " + table + " (id)");
+        INDEXES.get(table).forEach(jdbc::execute);
+        logger.info("Partitioned {} by month: {} partitions, {} rows in {} ms",
+                table, months.size(), rows, System.currentTimeMillis() - started);
+    }
+}
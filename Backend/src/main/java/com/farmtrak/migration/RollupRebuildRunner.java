@@ -0,0 +1,31 @@
+package com.farmtrak.migration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.farmtrak.service.DailyRollupService;
+
+// Rebuilds the daily rollup tables when started with --rebuild-rollups, and once
+// automatically on the first start after the tables were introduced (unless
+// farmtrak.migrations.on-startup is off, in which case --migrate does it).
+@Component
+public class RollupRebuildRunner implements ApplicationRunner {
+
+    private final DailyRollupService rollups;
+    private final boolean runOnStartup;
+
+    public RollupRebuildRunner(DailyRollupService rollups,
+                               @Value("${farmtrak.migrations.on-startup:true}") boolean runOnStartup) {
+        this.rollups = rollups;
+        this.runOnStartup = runOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption("rebuild-rollups") || (runOnStartup && rollups.needsInitialBuild())) {
+            rollups.rebuildAll();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.farmtrak.migration;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Moves the data tables from user_email keys to numeric tenant ids: creates a tenant row
+// for every email found in them, fills in tenant_id, marks it NOT NULL and drops the old
+// user_email indexes that the tenant_id ones replace. user_email itself stays, as payload
+// for the rollups and exports. A table whose tenant_id is already NOT NULL is done, so
+// later starts only read the catalog. Runs like the other migrations, before
+// MonthlyPartitionMigration.
+@Component
+@Order(1)
+public class TenantMigration implements ApplicationRunner {
+
+    static final List<String> TABLES = List.of("flock", "expense", "revenue", "feed_record", "egg_production");
+
+    private static final List<String> OLD_INDEXES = List.of(
+            "idx_flock_user_start_date_id", "idx_flock_user_id", "idx_flock_user_change_version",
+            "idx_expense_user_date_id", "idx_expense_user_id", "idx_expense_user_change_version",
+            "idx_revenue_user_date_id", "idx_revenue_user_id", "idx_revenue_user_change_version",
+            "idx_feed_record_user_id", "idx_feed_record_user_bird_name_id", "idx_feed_record_user_change_version",
+            "idx_egg_production_user_date_id", "idx_egg_production_user_id", "idx_egg_production_user_change_version");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final boolean runOnStartup;
+    private final Logger logger = LoggerFactory.getLogger(TenantMigration.class);
+
+    public TenantMigration(JdbcTemplate jdbc, TransactionTemplate transactions,
+                           @Value("${farmtrak.migrations.on-startup:true}") boolean runOnStartup) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.runOnStartup = runOnStartup;
+    }
+
+    // No @Transactional on run(): its proxy would take a connection even when on-startup is off
+    @Override
+    public void run(ApplicationArguments args) {
+        if (runOnStartup) {
+            transactions.executeWithoutResult(status -> migrate());
+        }
+    }
+
+    private void migrate() {
+        for (String table : TABLES) {
+            String nullable = jdbc.queryForObject(
+                    "SELECT is_nullable FROM information_schema.columns "
+                    + "WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'tenant_id'",
+                    String.class, table);
+            if ("NO".equals(nullable)) {
+                continue;
+            }
+
+            jdbc.execute("LOCK TABLE " + table + " IN SHARE ROW EXCLUSIVE MODE");
+            int tenants = jdbc.update("INSERT INTO tenant (email) SELECT DISTINCT user_email FROM " + table
+                    + " WHERE tenant_id IS NULL AND user_email IS NOT NULL ON CONFLICT (email) DO NOTHING");
+            int rows = jdbc.update("UPDATE " + table + " t SET tenant_id = tenant.id FROM tenant "
+                    + "WHERE t.tenant_id IS NULL AND tenant.email = t.user_email");
+            // Rows without an owner were never visible to anyone; they keep the column nullable
+            Integer orphans = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM " + table + " WHERE tenant_id IS NULL", Integer.class);
+            if (orphans != null && orphans > 0) {
+                logger.warn("{} rows of {} have no user_email and were left without a tenant", orphans, table);
+            } else {
+                jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN tenant_id SET NOT NULL");
+            }
+            logger.info("Keyed {} by tenant: {} new tenants, {} rows", table, tenants, rows);
+        }
+        for (String index : OLD_INDEXES) {
+            jdbc.execute("DROP INDEX IF EXISTS " + index);
+        }
+    }
+}
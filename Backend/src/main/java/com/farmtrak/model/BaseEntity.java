@@ -2,6 +2,15 @@ package com.farmtrak.model;
 
 // This interface ensures all our main models have user email handling
 public interface BaseEntity {
+    Long getId();
+    void setId(Long id);
     String getUserEmail();
     void setUserEmail(String userEmail);
-}
\ No newline at end of file
+    Long getTenantId();
+    void setTenantId(Long tenantId);
+
+    // Per-user change version of the last write to this row (0 for rows written before
+    // the change feed existed); see ChangeFeedService
+    long getChangeVersion();
+    void setChangeVersion(long changeVersion);
+}
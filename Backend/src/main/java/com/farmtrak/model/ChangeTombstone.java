@@ -0,0 +1,41 @@
+package com.farmtrak.model;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Marks a deleted row in the change feed, so clients holding a copy can drop it. Kept for
+// farmtrak.changes.tombstone-retention, then pruned (see TombstonePruner).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_change_tombstone_user_change_version", columnList = "user_email, change_version"),
+        @Index(name = "idx_change_tombstone_deleted_at", columnList = "deleted_at")
+})
+public class ChangeTombstone {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+    @JsonIgnore
+    @Column(name = "user_email")
+    private String userEmail;
+    private String resource;
+    private Long entityId;
+    @Column(name = "change_version")
+    private long changeVersion;
+    // Only the type in columnDefinition: ddl-auto=update compares it with the type name the
+    // database reports, and a longer definition made it re-issue an invalid ALTER every start
+    @JsonIgnore
+    @ColumnDefault("now()")
+    @Column(name = "deleted_at", columnDefinition = "timestamptz", nullable = false)
+    private Instant deletedAt;
+}
@@ -0,0 +1,27 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+// Eggs laid per user and day across all flocks. Per-flock daily counts are already one
+// row each in egg_production, so the rollup keeps only the farm-wide total.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_egg_rollup_user_date", columnNames = {"user_email", "date"})
+})
+public class DailyEggRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_email")
+    private String userEmail;
+    private LocalDate date;
+    private long count;
+    private long entries;
+}
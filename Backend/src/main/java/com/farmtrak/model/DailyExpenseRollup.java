@@ -0,0 +1,28 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_expense_rollup_user_date_category_paid",
+                columnNames = {"user_email", "date", "category", "paid"})
+})
+public class DailyExpenseRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "user_email")
+    private String userEmail;
+    private LocalDate date;
+    private String category;
+    private boolean paid;
+    private double amount;
+    private long entries;
+}
@@ -0,0 +1,34 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+// Eggs laid per flock in a month whose raw egg_production rows were compacted away (see
+// PartitionMaintenanceService). month is the first day of the month. The per-day farm
+// totals of those months stay in daily_egg_rollup.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_egg_monthly_total_tenant_flock_month",
+                columnNames = {"tenant_id", "flock_id", "month"})
+}, indexes = {
+        @Index(name = "idx_egg_monthly_total_tenant_month", columnList = "tenant_id, month")
+})
+public class EggMonthlyTotal {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "tenant_id")
+    private Long tenantId;
+    private String userEmail;
+    @Column(name = "flock_id")
+    private Long flockId;
+    private LocalDate month;
+    private long count;
+    private long entries;
+}
@@ -1,6 +1,7 @@
 package com.farmtrak.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -11,6 +12,13 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_egg_production_tenant_flock_date", columnNames = {"tenant_id", "flock_id", "date"})
+}, indexes = {
+        @Index(name = "idx_egg_production_tenant_date_id", columnList = "tenant_id, date, id"),
+        @Index(name = "idx_egg_production_tenant_id", columnList = "tenant_id, id"),
+        @Index(name = "idx_egg_production_tenant_change_version", columnList = "tenant_id, change_version")
+})
 public class EggProduction implements BaseEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,6 +26,15 @@ public class EggProduction implements BaseEntity {
     private int count;
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate date;
+    @Column(name = "flock_id")
     private Long flockId;
+    // Always the caller's own address, so responses leave it out like tenantId
+    @JsonIgnore
     private String userEmail;
+    @Column(name = "change_version", columnDefinition = "bigint not null default 0")
+    private long changeVersion;
+    // Numeric key of the owning user (see Tenant); every query filters on it
+    @JsonIgnore
+    @Column(name = "tenant_id")
+    private Long tenantId;
 }
@@ -1,5 +1,6 @@
 package com.farmtrak.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -9,13 +10,27 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_feed_record_tenant_id", columnList = "tenant_id, id"),
+        @Index(name = "idx_feed_record_tenant_bird_name_id", columnList = "tenant_id, bird_name, id"),
+        @Index(name = "idx_feed_record_tenant_change_version", columnList = "tenant_id, change_version")
+})
 public class FeedRecord implements BaseEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    private String userEmail; 
+    // Always the caller's own address, so responses leave it out like tenantId
+    @JsonIgnore
+    private String userEmail;
+    @Column(name = "bird_name")
     private String birdName;
     private int numBirds;
     private double totalFeedGiven;
     private int daysLasted;
+    @Column(name = "change_version", columnDefinition = "bigint not null default 0")
+    private long changeVersion;
+    // Numeric key of the owning user (see Tenant); every query filters on it
+    @JsonIgnore
+    @Column(name = "tenant_id")
+    private Long tenantId;
 }
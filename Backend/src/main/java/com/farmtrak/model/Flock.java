@@ -1,5 +1,6 @@
 package com.farmtrak.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,11 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_flock_tenant_start_date_id", columnList = "tenant_id, start_date, id"),
+        @Index(name = "idx_flock_tenant_id", columnList = "tenant_id, id"),
+        @Index(name = "idx_flock_tenant_change_version", columnList = "tenant_id, change_version")
+})
 public class Flock implements BaseEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,7 +23,16 @@ public class Flock implements BaseEntity {
     private int numBirds;
     private String birdType;
     private String customBird;
+    @Column(name = "start_date")
     private LocalDate startDate;
     private int age;
+    // Always the caller's own address, so responses leave it out like tenantId
+    @JsonIgnore
     private String userEmail;
+    @Column(name = "change_version", columnDefinition = "bigint not null default 0")
+    private long changeVersion;
+    // Numeric key of the owning user (see Tenant); every query filters on it
+    @JsonIgnore
+    @Column(name = "tenant_id")
+    private Long tenantId;
 }
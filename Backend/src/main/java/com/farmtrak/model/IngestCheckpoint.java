@@ -0,0 +1,18 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The last egg ingest log sequence a node has written to the database. It is updated in
+// the same transaction as the rows, so replaying the log after a crash skips what is in.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class IngestCheckpoint {
+    @Id
+    private String node;
+    private long lastSequence;
+}
@@ -0,0 +1,30 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.Instant;
+import java.time.LocalDate;
+
+// A coalesced egg ingest row that could not be written (see EggIngestService). It is kept
+// here rather than retried forever, so one bad row does not hold up the ingest queue.
+// base is the replacing count, or null when delta only adds to the stored count.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class IngestDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String node;
+    private String userEmail;
+    private Long flockId;
+    private LocalDate date;
+    private Integer base;
+    private int delta;
+    @Column(length = 1000)
+    private String error;
+    private Instant failedAt;
+}
@@ -0,0 +1,27 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The last egg ingest log sequence whose entries of one user a node has written. Each
+// user's rows commit in their own transaction together with this row, so a replay after a
+// crash mid-flush skips what those users already have. Rows at or below the node's
+// IngestCheckpoint are deleted once the whole flush is in.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ingest_user_checkpoint_node_user", columnNames = {"node", "user_email"})
+})
+public class IngestUserCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String node;
+    @Column(name = "user_email")
+    private String userEmail;
+    private long lastSequence;
+}
@@ -0,0 +1,21 @@
+package com.farmtrak.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The latest change version handed out for a user. Each writing transaction takes the
+// next one, holding this row locked until it commits. Tombstones up to prunedVersion may
+// be gone, so a client that last saw an older version needs a full copy.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class UserChangeVersion {
+    @Id
+    private String userEmail;
+    private long version;
+    @Column(columnDefinition = "bigint not null default 0")
+    private long prunedVersion;
+}
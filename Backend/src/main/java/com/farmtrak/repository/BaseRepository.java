@@ -1,10 +1,23 @@
 package com.farmtrak.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 import java.util.List;
 
 @NoRepositoryBean // Tells Spring this is an interface to be extended, not implemented directly
 public interface BaseRepository<T, ID> extends JpaRepository<T, ID> {
-    List<T> findByUserEmail(String userEmail);
-}
\ No newline at end of file
+    List<T> findByTenantId(Long tenantId);
+
+    // The methods taking a type return read-only rows of that type (see ListRow) for the
+    // read endpoints; the query selects the record's components by name.
+    <P> List<P> findByTenantId(Long tenantId, Class<P> type);
+
+    // Keyset page: the tenant's rows with id > afterId in id order, at most pageable.getPageSize() of them
+    <P> List<P> findByTenantIdAndIdGreaterThanOrderById(Long tenantId, Long afterId, Pageable pageable,
+                                                         Class<P> type);
+
+    // Rows written after the given per-user change version, oldest change first
+    <P> List<P> findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(Long tenantId, long since,
+                                                                                       Class<P> type);
+}
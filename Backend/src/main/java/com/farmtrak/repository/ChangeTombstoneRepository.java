@@ -0,0 +1,12 @@
+package com.farmtrak.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.farmtrak.model.ChangeTombstone;
+
+public interface ChangeTombstoneRepository extends JpaRepository<ChangeTombstone, Long> {
+    <P> List<P> findByUserEmailAndChangeVersionGreaterThanOrderByChangeVersion(String userEmail, long since,
+                                                                                Class<P> type);
+}
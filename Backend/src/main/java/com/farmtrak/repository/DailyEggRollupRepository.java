@@ -0,0 +1,21 @@
+package com.farmtrak.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.farmtrak.dto.DailyTotal;
+import com.farmtrak.model.DailyEggRollup;
+
+public interface DailyEggRollupRepository extends JpaRepository<DailyEggRollup, Long> {
+
+    @Query("SELECT COALESCE(SUM(r.count), 0) FROM DailyEggRollup r WHERE r.userEmail = :userEmail AND r.date = :date")
+    long sumCountByUserEmailAndDate(@Param("userEmail") String userEmail, @Param("date") LocalDate date);
+
+    @Query("SELECT r.date AS date, r.count AS total FROM DailyEggRollup r "
+            + "WHERE r.userEmail = :userEmail AND r.date >= :from")
+    List<DailyTotal> findDailyTotalsSince(@Param("userEmail") String userEmail, @Param("from") LocalDate from);
+}
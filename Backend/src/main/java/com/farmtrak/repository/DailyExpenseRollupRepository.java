@@ -0,0 +1,20 @@
+package com.farmtrak.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.farmtrak.dto.CategoryTotal;
+import com.farmtrak.model.DailyExpenseRollup;
+
+public interface DailyExpenseRollupRepository extends JpaRepository<DailyExpenseRollup, Long> {
+
+    @Query("SELECT COALESCE(SUM(r.amount), 0) FROM DailyExpenseRollup r WHERE r.userEmail = :userEmail")
+    double sumAmountByUserEmail(@Param("userEmail") String userEmail);
+
+    @Query("SELECT r.category AS category, SUM(r.amount) AS total FROM DailyExpenseRollup r "
+            + "WHERE r.userEmail = :userEmail GROUP BY r.category")
+    List<CategoryTotal> sumAmountByCategory(@Param("userEmail") String userEmail);
+}
@@ -0,0 +1,21 @@
+package com.farmtrak.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.farmtrak.dto.DailyTotal;
+import com.farmtrak.model.DailyRevenueRollup;
+
+public interface DailyRevenueRollupRepository extends JpaRepository<DailyRevenueRollup, Long> {
+
+    @Query("SELECT COALESCE(SUM(r.amount), 0) FROM DailyRevenueRollup r WHERE r.userEmail = :userEmail")
+    double sumAmountByUserEmail(@Param("userEmail") String userEmail);
+
+    @Query("SELECT r.date AS date, SUM(r.amount) AS total FROM DailyRevenueRollup r "
+            + "WHERE r.userEmail = :userEmail AND r.date >= :from GROUP BY r.date")
+    List<DailyTotal> sumAmountByDateSince(@Param("userEmail") String userEmail, @Param("from") LocalDate from);
+}
@@ -0,0 +1,26 @@
+package com.farmtrak.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import jakarta.persistence.QueryHint;
+
+@NoRepositoryBean // For entities with a "date" column, adds date-ranged keyset pages
+public interface DatedRepository<T, ID> extends BaseRepository<T, ID> {
+
+    <P> List<P> findByTenantIdAndDateBetweenAndIdGreaterThanOrderById(Long tenantId, LocalDate from, LocalDate to,
+                                                                       Long afterId, Pageable pageable,
+                                                                       Class<P> type);
+
+    // Cursor over the tenant's full history as read-only rows; must be consumed inside a
+    // transaction and closed. The fetch size keeps the JDBC driver from buffering the
+    // whole result set.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    <P> Stream<P> streamByTenantIdOrderByDateAscIdAsc(Long tenantId, Class<P> type);
+}
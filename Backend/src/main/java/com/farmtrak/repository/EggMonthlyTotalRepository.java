@@ -0,0 +1,40 @@
+package com.farmtrak.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import com.farmtrak.dto.FlockMonthTotal;
+import com.farmtrak.model.EggMonthlyTotal;
+
+import jakarta.persistence.QueryHint;
+
+public interface EggMonthlyTotalRepository extends JpaRepository<EggMonthlyTotal, Long> {
+
+    // Eggs per flock and month for months starting in [from, until), whether they are still
+    // raw rows in egg_production or were compacted
+    @Query(value = "SELECT month AS \"month\", flock_id AS \"flockId\", SUM(count) AS \"count\", "
+            + "SUM(entries) AS \"entries\", BOOL_OR(archived) AS \"archived\" FROM ("
+            + "  SELECT CAST(date_trunc('month', date) AS date) AS month, flock_id, count, 1 AS entries, "
+            + "  false AS archived FROM egg_production "
+            + "  WHERE tenant_id = :tenantId AND date >= :from AND date < :until "
+            + "  UNION ALL SELECT month, flock_id, count, entries, true FROM egg_monthly_total "
+            + "  WHERE tenant_id = :tenantId AND month >= :from AND month < :until) m "
+            + "GROUP BY month, flock_id ORDER BY month, flock_id", nativeQuery = true)
+    List<FlockMonthTotal> findFlockMonthTotals(@Param("tenantId") Long tenantId, @Param("from") LocalDate from,
+                                               @Param("until") LocalDate until);
+
+    // Cursor over the tenant's archived months, oldest first, as FlockMonthTotal projections;
+    // same rules as DatedRepository.streamByTenantIdOrderByDateAscIdAsc
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = "SELECT month AS \"month\", flock_id AS \"flockId\", count AS \"count\", "
+            + "entries AS \"entries\", true AS \"archived\" FROM egg_monthly_total "
+            + "WHERE tenant_id = :tenantId ORDER BY month, flock_id", nativeQuery = true)
+    Stream<FlockMonthTotal> streamByTenantId(@Param("tenantId") Long tenantId);
+}
@@ -2,12 +2,38 @@ package com.farmtrak.repository;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.farmtrak.dto.EggChangedRow;
+import com.farmtrak.dto.FlockDayCount;
 import com.farmtrak.model.EggProduction;
 
-public interface EggProductionRepository extends BaseRepository<EggProduction, Long> {
-    List<EggProduction> findByUserEmailAndDate(String userEmail, LocalDate date);
-    List<EggProduction> findByUserEmail(String userEmail);
-    Optional<EggProduction> findByFlockIdAndDateAndUserEmail(Long flockId, LocalDate date, String userEmail);
-}
\ No newline at end of file
+public interface EggProductionRepository extends DatedRepository<EggProduction, Long>, EggProductionRepositoryCustom {
+    <P> List<P> findByTenantIdAndDate(Long tenantId, LocalDate date, Class<P> type);
+    boolean existsByTenantIdAndFlockIdAndDate(Long tenantId, Long flockId, LocalDate date);
+
+    // The tenant's counts per flock and day from a day on, oldest first, without loading entities
+    @Query("SELECT new com.farmtrak.dto.FlockDayCount(e.flockId, e.date, e.count) FROM EggProduction e "
+            + "WHERE e.tenantId = :tenantId AND e.flockId IS NOT NULL AND e.date >= :from ORDER BY e.date")
+    List<FlockDayCount> findFlockDayCounts(@Param("tenantId") Long tenantId, @Param("from") LocalDate from);
+
+    // Updates the row only if it belongs to the tenant; returns one entry per row changed.
+    // The locked subquery supplies the previous date and flock in the same statement.
+    @Transactional
+    @Query(value = "UPDATE egg_production p SET flock_id = CAST(:#{#updated.flockId} AS bigint), "
+            + "count = :#{#updated.count}, date = CAST(:#{#updated.date} AS date), "
+            + "change_version = :#{#updated.changeVersion} "
+            + "FROM (SELECT id, date, flock_id FROM egg_production WHERE id = :id AND tenant_id = :tenantId FOR UPDATE) old "
+            + "WHERE p.id = old.id RETURNING p.id AS \"id\", old.date AS \"previousDate\", "
+            + "old.flock_id AS \"previousFlockId\"", nativeQuery = true)
+    List<EggChangedRow> updateOwned(@Param("id") Long id, @Param("tenantId") Long tenantId,
+                                    @Param("updated") EggProduction updated);
+
+    @Transactional
+    @Query(value = "DELETE FROM egg_production WHERE id = :id AND tenant_id = :tenantId "
+            + "RETURNING id AS \"id\", date AS \"previousDate\", flock_id AS \"previousFlockId\"", nativeQuery = true)
+    List<EggChangedRow> deleteOwned(@Param("id") Long id, @Param("tenantId") Long tenantId);
+}
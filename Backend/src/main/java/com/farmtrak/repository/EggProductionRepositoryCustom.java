@@ -0,0 +1,17 @@
+package com.farmtrak.repository;
+
+import java.util.List;
+
+import com.farmtrak.model.EggProduction;
+
+public interface EggProductionRepositoryCustom {
+
+    // Inserts or updates the tenant's row for the entry's (flockId, date) in a single statement,
+    // adding to the stored count when merge is true and replacing it otherwise. The row is
+    // stamped with changeVersion.
+    EggProduction upsert(String userEmail, Long tenantId, EggProduction entry, boolean merge, long changeVersion);
+
+    // Same as upsert for many entries, sent as one JDBC batch. Returns the resulting rows.
+    List<EggProduction> upsertAll(String userEmail, Long tenantId, List<EggProduction> entries, boolean merge,
+                                  long changeVersion);
+}
@@ -0,0 +1,126 @@
+package com.farmtrak.repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.farmtrak.model.EggProduction;
+
+// Egg counts are written with INSERT ... ON CONFLICT against the unique
+// (tenant_id, flock_id, date) key, so concurrent posts for the same flock and day
+// neither lose increments nor create duplicate rows, and no row is read first.
+public class EggProductionRepositoryImpl implements EggProductionRepositoryCustom {
+
+    private static final String UPSERT_MERGE =
+            "INSERT INTO egg_production (count, date, flock_id, user_email, change_version, tenant_id) "
+            + "VALUES (:count, :date, :flockId, :userEmail, :changeVersion, :tenantId) "
+            + "ON CONFLICT (tenant_id, flock_id, date) DO UPDATE SET count = egg_production.count + EXCLUDED.count, "
+            + "change_version = EXCLUDED.change_version";
+
+    private static final String UPSERT_REPLACE =
+            "INSERT INTO egg_production (count, date, flock_id, user_email, change_version, tenant_id) "
+            + "VALUES (:count, :date, :flockId, :userEmail, :changeVersion, :tenantId) "
+            + "ON CONFLICT (tenant_id, flock_id, date) DO UPDATE SET count = EXCLUDED.count, "
+            + "change_version = EXCLUDED.change_version";
+
+    private static final String RETURNING = " RETURNING id, count, date, flock_id, user_email, change_version, tenant_id";
+
+    private static final String SELECT_RANGE =
+            "SELECT id, count, date, flock_id, user_email, change_version, tenant_id FROM egg_production "
+            + "WHERE tenant_id = :tenantId AND flock_id IN (:flockIds) AND date BETWEEN :from AND :to";
+
+    private static final RowMapper<EggProduction> ROW_MAPPER = (rs, rowNum) -> new EggProduction(
+            rs.getLong("id"), rs.getInt("count"), rs.getDate("date").toLocalDate(),
+            rs.getObject("flock_id", Long.class), rs.getString("user_email"), rs.getLong("change_version"),
+            rs.getObject("tenant_id", Long.class));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public EggProductionRepositoryImpl(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    @Transactional
+    public EggProduction upsert(String userEmail, Long tenantId, EggProduction entry, boolean merge,
+                                long changeVersion) {
+        String sql = (merge ? UPSERT_MERGE : UPSERT_REPLACE) + RETURNING;
+        return jdbc.queryForObject(sql,
+                params(userEmail, tenantId, entry.getFlockId(), entry.getDate(), entry.getCount(), changeVersion),
+                ROW_MAPPER);
+    }
+
+    @Override
+    @Transactional
+    public List<EggProduction> upsertAll(String userEmail, Long tenantId, List<EggProduction> entries,
+                                         boolean merge, long changeVersion) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        // Collapse repeated (flockId, date) pairs in the payload the same way sequential posts
+        // would; a single INSERT ... ON CONFLICT cannot touch the same row twice.
+        Map<Key, Integer> incoming = new LinkedHashMap<>();
+        for (EggProduction entry : entries) {
+            Key key = new Key(entry.getFlockId(), entry.getDate());
+            if (merge) {
+                incoming.merge(key, entry.getCount(), Integer::sum);
+            } else {
+                incoming.put(key, entry.getCount());
+            }
+        }
+
+        List<MapSqlParameterSource> batch = new ArrayList<>(incoming.size());
+        incoming.forEach((key, count) ->
+                batch.add(params(userEmail, tenantId, key.flockId(), key.date(), count, changeVersion)));
+        jdbc.batchUpdate(merge ? UPSERT_MERGE : UPSERT_REPLACE, batch.toArray(new MapSqlParameterSource[0]));
+
+        List<EggProduction> result = new ArrayList<>(incoming.size());
+        for (EggProduction row : jdbc.query(SELECT_RANGE, rangeOf(tenantId, incoming.keySet()), ROW_MAPPER)) {
+            if (incoming.containsKey(new Key(row.getFlockId(), row.getDate()))) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    private static MapSqlParameterSource params(String userEmail, Long tenantId, Long flockId, LocalDate date,
+                                                int count, long changeVersion) {
+        return new MapSqlParameterSource()
+                .addValue("count", count)
+                .addValue("date", Date.valueOf(date))
+                .addValue("flockId", flockId)
+                .addValue("userEmail", userEmail)
+                .addValue("tenantId", tenantId)
+                .addValue("changeVersion", changeVersion);
+    }
+
+    private static MapSqlParameterSource rangeOf(Long tenantId, Set<Key> keys) {
+        Set<Long> flockIds = new TreeSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Key key : keys) {
+            flockIds.add(key.flockId());
+            from = from == null || key.date().isBefore(from) ? key.date() : from;
+            to = to == null || key.date().isAfter(to) ? key.date() : to;
+        }
+        return new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("flockIds", flockIds)
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to));
+    }
+
+    private record Key(Long flockId, LocalDate date) {
+    }
+}
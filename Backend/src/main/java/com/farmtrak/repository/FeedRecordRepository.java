@@ -1,8 +1,36 @@
 package com.farmtrak.repository;
 
+import java.util.List;
+
+import com.farmtrak.dto.ChangedRow;
 import com.farmtrak.model.FeedRecord;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface FeedRecordRepository extends BaseRepository<FeedRecord, Long> {
-}
\ No newline at end of file
+
+    // The newest `window` records of each bird name that can give a rate (birds and days set)
+    @Query(value = "SELECT id, user_email, bird_name, num_birds, total_feed_given, days_lasted, change_version, "
+            + "tenant_id FROM (SELECT f.*, ROW_NUMBER() OVER (PARTITION BY bird_name ORDER BY id DESC) AS rn "
+            + "FROM feed_record f WHERE tenant_id = :tenantId AND bird_name IS NOT NULL "
+            + "AND num_birds > 0 AND days_lasted > 0) recent WHERE rn <= :window", nativeQuery = true)
+    List<FeedRecord> findRecentPerBirdName(@Param("tenantId") Long tenantId, @Param("window") int window);
+
+    // Updates the row only if it belongs to the tenant; returns one entry per row changed
+    @Transactional
+    @Query(value = "UPDATE feed_record SET bird_name = :#{#updated.birdName}, num_birds = :#{#updated.numBirds}, "
+            + "total_feed_given = :#{#updated.totalFeedGiven}, days_lasted = :#{#updated.daysLasted}, "
+            + "change_version = :#{#updated.changeVersion} "
+            + "WHERE id = :id AND tenant_id = :tenantId "
+            + "RETURNING id AS \"id\", CAST(NULL AS date) AS \"previousDate\"", nativeQuery = true)
+    List<ChangedRow> updateOwned(@Param("id") Long id, @Param("tenantId") Long tenantId,
+                                 @Param("updated") FeedRecord updated);
+
+    @Transactional
+    @Query(value = "DELETE FROM feed_record WHERE id = :id AND tenant_id = :tenantId "
+            + "RETURNING id AS \"id\", CAST(NULL AS date) AS \"previousDate\"", nativeQuery = true)
+    List<ChangedRow> deleteOwned(@Param("id") Long id, @Param("tenantId") Long tenantId);
+}
@@ -1,6 +1,40 @@
 package com.farmtrak.repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import com.farmtrak.model.Flock;
 
 public interface FlockRepository extends BaseRepository<Flock, Long> {
-}
\ No newline at end of file
+
+    @Query("SELECT COALESCE(SUM(f.numBirds), 0) FROM Flock f WHERE f.tenantId = :tenantId")
+    long sumNumBirdsByTenantId(@Param("tenantId") Long tenantId);
+
+    // Keyset page of read-only rows by start date, like DatedRepository's by date
+    <P> List<P> findByTenantIdAndStartDateBetweenAndIdGreaterThanOrderById(Long tenantId, LocalDate from,
+                                                                            LocalDate to, Long afterId,
+                                                                            Pageable pageable, Class<P> type);
+
+    // Updates the flock only if it belongs to the tenant and returns it as stored; empty when
+    // no row matched. A missing start date keeps the current one.
+    @Transactional
+    @Query(value = "UPDATE flock SET age = :#{#updated.age}, num_birds = :#{#updated.numBirds}, "
+            + "bird_type = :#{#updated.birdType}, custom_bird = :#{#updated.customBird}, "
+            + "start_date = COALESCE(CAST(:#{#updated.startDate} AS date), start_date), "
+            + "change_version = :#{#updated.changeVersion} "
+            + "WHERE id = :id AND tenant_id = :tenantId RETURNING *", nativeQuery = true)
+    List<Flock> updateOwned(@Param("id") Long id, @Param("tenantId") Long tenantId,
+                            @Param("updated") Flock updated);
+
+    // Returns the number of rows deleted: 0 when the flock is missing or not the tenant's
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Flock f WHERE f.id = :id AND f.tenantId = :tenantId")
+    int deleteOwned(@Param("id") Long id, @Param("tenantId") Long tenantId);
+}
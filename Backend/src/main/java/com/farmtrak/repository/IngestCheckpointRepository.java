@@ -0,0 +1,8 @@
+package com.farmtrak.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.farmtrak.model.IngestCheckpoint;
+
+public interface IngestCheckpointRepository extends JpaRepository<IngestCheckpoint, String> {
+}
@@ -1,8 +1,30 @@
 package com.farmtrak.repository;
 
+import java.util.List;
+
+import com.farmtrak.dto.ChangedRow;
 import com.farmtrak.model.Revenue;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface RevenueRepository extends BaseRepository<Revenue, Long> {
-}
\ No newline at end of file
+public interface RevenueRepository extends DatedRepository<Revenue, Long> {
+
+    // Updates the row only if it belongs to the tenant; returns one entry per row changed.
+    // The locked subquery supplies the previous date in the same statement.
+    @Transactional
+    @Query(value = "UPDATE revenue r SET category = :#{#updated.category}, amount = :#{#updated.amount}, "
+            + "date = CAST(:#{#updated.date} AS date), notes = :#{#updated.notes}, "
+            + "change_version = :#{#updated.changeVersion} "
+            + "FROM (SELECT id, date FROM revenue WHERE id = :id AND tenant_id = :tenantId FOR UPDATE) old "
+            + "WHERE r.id = old.id RETURNING r.id AS \"id\", old.date AS \"previousDate\"", nativeQuery = true)
+    List<ChangedRow> updateOwned(@Param("id") Long id, @Param("tenantId") Long tenantId,
+                                 @Param("updated") Revenue updated);
+
+    @Transactional
+    @Query(value = "DELETE FROM revenue WHERE id = :id AND tenant_id = :tenantId "
+            + "RETURNING id AS \"id\", date AS \"previousDate\"", nativeQuery = true)
+    List<ChangedRow> deleteOwned(@Param("id") Long id, @Param("tenantId") Long tenantId);
+}
@@ -0,0 +1,56 @@
+package com.farmtrak.service;
+
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// A user's full list for one resource together with the ETag of its contents
+public class CachedList<T> {
+
+    private final List<T> rows;
+    private final String etag;
+
+    CachedList(List<T> rows, String etag) {
+        this.rows = rows;
+        this.etag = etag;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    // 304 without a body when the client already holds this exact list
+    public ResponseEntity<List<T>> toResponse(HttpServletRequest request) {
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(rows);
+    }
+
+    // Weak comparison, as If-None-Match calls for
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = opaque(candidate.trim());
+            if (tag.equals(opaque) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,115 @@
+package com.farmtrak.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.farmtrak.dto.ChangeSet;
+import com.farmtrak.dto.DeletedRow;
+import com.farmtrak.dto.EggRow;
+import com.farmtrak.dto.ExpenseRow;
+import com.farmtrak.dto.FeedRecordRow;
+import com.farmtrak.dto.FlockRow;
+import com.farmtrak.dto.RevenueRow;
+import com.farmtrak.repository.ChangeTombstoneRepository;
+import com.farmtrak.repository.EggProductionRepository;
+import com.farmtrak.repository.ExpenseRepository;
+import com.farmtrak.repository.FeedRecordRepository;
+import com.farmtrak.repository.FlockRepository;
+import com.farmtrak.repository.RevenueRepository;
+
+// Per-user change versions for delta sync.
+//
+// Every writing transaction takes the user's next version from user_change_version and
+// stamps it on the rows it writes, or on tombstones for the rows it deletes. The
+// version row stays locked until the transaction ends, so one user's writes commit in
+// version order. A reader that sees version V therefore also sees every row stamped
+// with V or less. Different users never wait on each other.
+//
+// Tombstones are pruned after a retention period (see TombstonePruner). A client asking
+// for changes since a version older than the user's pruned version gets
+// ChangesPrunedException, 410 Gone, and must fetch a full copy without "since".
+@Service
+public class ChangeFeedService {
+
+    private static final String NEXT_VERSION =
+            "INSERT INTO user_change_version (user_email, version) VALUES (?, 1) "
+            + "ON CONFLICT (user_email) DO UPDATE SET version = user_change_version.version + 1 "
+            + "RETURNING version";
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher events;
+    private final ExpenseRepository expenseRepo;
+    private final RevenueRepository revenueRepo;
+    private final FeedRecordRepository feedRecordRepo;
+    private final FlockRepository flockRepo;
+    private final EggProductionRepository eggRepo;
+    private final ChangeTombstoneRepository tombstoneRepo;
+    private final TenantService tenants;
+
+    public ChangeFeedService(JdbcTemplate jdbc, ApplicationEventPublisher events, ExpenseRepository expenseRepo,
+                             RevenueRepository revenueRepo, FeedRecordRepository feedRecordRepo,
+                             FlockRepository flockRepo, EggProductionRepository eggRepo,
+                             ChangeTombstoneRepository tombstoneRepo, TenantService tenants) {
+        this.jdbc = jdbc;
+        this.events = events;
+        this.expenseRepo = expenseRepo;
+        this.revenueRepo = revenueRepo;
+        this.feedRecordRepo = feedRecordRepo;
+        this.flockRepo = flockRepo;
+        this.eggRepo = eggRepo;
+        this.tombstoneRepo = tombstoneRepo;
+        this.tenants = tenants;
+    }
+
+    // Call once per writing transaction, before the write itself
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long nextVersion(String userEmail) {
+        Long version = jdbc.queryForObject(NEXT_VERSION, Long.class, userEmail);
+        events.publishEvent(new ChangesCommitted(userEmail));
+        return version;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletes(String userEmail, String resource, Collection<Long> ids, long version) {
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[] {userEmail, resource, id, version});
+        }
+        jdbc.batchUpdate("INSERT INTO change_tombstone (user_email, resource, entity_id, change_version) "
+                + "VALUES (?, ?, ?, ?)", rows);
+    }
+
+    // All reads share one snapshot, so the returned version matches the returned rows
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ChangeSet changesSince(String userEmail, long since) {
+        List<long[]> current = jdbc.query("SELECT version, pruned_version FROM user_change_version "
+                + "WHERE user_email = ?", (rs, row) -> new long[] {rs.getLong(1), rs.getLong(2)}, userEmail);
+        long version = current.isEmpty() ? 0 : current.get(0)[0];
+        long prunedVersion = current.isEmpty() ? 0 : current.get(0)[1];
+        if (since >= 0 && since < prunedVersion) {
+            throw new ChangesPrunedException(since, prunedVersion);
+        }
+        Long tenantId = tenants.idOf(userEmail);
+        return new ChangeSet(version,
+                expenseRepo.findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(
+                        tenantId, since, ExpenseRow.class),
+                revenueRepo.findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(
+                        tenantId, since, RevenueRow.class),
+                feedRecordRepo.findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(
+                        tenantId, since, FeedRecordRow.class),
+                flockRepo.findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(
+                        tenantId, since, FlockRow.class),
+                eggRepo.findByTenantIdAndChangeVersionGreaterThanOrderByChangeVersionAscIdAsc(
+                        tenantId, since, EggRow.class),
+                tombstoneRepo.findByUserEmailAndChangeVersionGreaterThanOrderByChangeVersion(
+                        userEmail, since, DeletedRow.class));
+    }
+}
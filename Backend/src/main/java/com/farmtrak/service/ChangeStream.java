@@ -0,0 +1,118 @@
+package com.farmtrak.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.farmtrak.dto.ChangeSet;
+
+import jakarta.annotation.PreDestroy;
+
+// Server-Sent Events for the change feed. Each subscriber first receives everything after
+// the version it asked for, then one "changes" event per committed write of its user.
+// Every event carries the same ChangeSet as /api/changes, and its version is the event
+// id, so a reconnecting client can resume with Last-Event-ID. A subscriber whose version
+// is older than the kept tombstones gets a single "resync" event and is closed; it should
+// fetch a full copy and subscribe again from that version.
+@Component
+public class ChangeStream {
+
+    private static final long TIMEOUT_MILLIS = Duration.ofMinutes(30).toMillis();
+
+    private final ChangeFeedService changeFeed;
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // A single sender thread keeps each emitter's events in order and off the request threads
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Logger logger = LoggerFactory.getLogger(ChangeStream.class);
+
+    public ChangeStream(ChangeFeedService changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    public SseEmitter subscribe(String userEmail, long since) {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MILLIS);
+        Subscriber subscriber = new Subscriber(emitter, since);
+        subscribers.computeIfAbsent(userEmail, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> remove(userEmail, subscriber));
+        emitter.onTimeout(() -> remove(userEmail, subscriber));
+        emitter.onError(error -> remove(userEmail, subscriber));
+        sender.execute(() -> push(userEmail, subscriber, true));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onCommit(ChangesCommitted event) {
+        Set<Subscriber> current = subscribers.get(event.userEmail());
+        if (current == null || current.isEmpty()) {
+            return;
+        }
+        sender.execute(() -> current.forEach(subscriber -> push(event.userEmail(), subscriber, false)));
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    // The first push always goes out, so a new subscriber learns the current version
+    private void push(String userEmail, Subscriber subscriber, boolean first) {
+        try {
+            ChangeSet changes = changeFeed.changesSince(userEmail, subscriber.since);
+            if (!first && changes.isEmpty()) {
+                return;
+            }
+            subscriber.emitter.send(SseEmitter.event()
+                    .name("changes")
+                    .id(String.valueOf(changes.getVersion()))
+                    .data(changes, MediaType.APPLICATION_JSON));
+            subscriber.since = changes.getVersion();
+        } catch (ChangesPrunedException e) {
+            remove(userEmail, subscriber);
+            try {
+                subscriber.emitter.send(SseEmitter.event().name("resync").data(e.getMessage()));
+                subscriber.emitter.complete();
+            } catch (IOException | RuntimeException sendFailed) {
+                subscriber.emitter.completeWithError(sendFailed);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Dropping change stream subscriber of {}: {}", userEmail, e.getMessage());
+            remove(userEmail, subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(String userEmail, Subscriber subscriber) {
+        subscribers.computeIfPresent(userEmail, (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        // Only read and written on the sender thread
+        private long since;
+
+        private Subscriber(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.farmtrak.service;
+
+// Published by ChangeFeedService when a transaction takes a change version; listeners
+// bound to the commit phase see it only once the changes are visible
+public record ChangesCommitted(String userEmail) {
+}
@@ -0,0 +1,14 @@
+package com.farmtrak.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The client's version is older than the oldest tombstone still kept, so deletes it has
+// not seen may be gone; it has to start over from a full copy
+@ResponseStatus(value = HttpStatus.GONE, reason = "Changes this old are no longer kept; fetch a full copy")
+public class ChangesPrunedException extends RuntimeException {
+
+    public ChangesPrunedException(long since, long prunedVersion) {
+        super("Version " + since + " is older than the pruned version " + prunedVersion);
+    }
+}
@@ -0,0 +1,140 @@
+package com.farmtrak.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Keeps the daily_*_rollup tables in step with egg_production, revenue and expense.
+//
+// After a write, the rollup rows of every (user, day) the write touched are recomputed
+// from that day's raw rows, which is only a handful per user and day. Recomputing the
+// old and the new day covers updates that move a row's date or change its amount, and
+// works the same for JPA saves and the native upserts. A transaction-scoped advisory
+// lock per (table, user, day) serializes concurrent refreshes of the same day; because
+// each statement after the lock takes a fresh snapshot, the last writer always sees
+// every committed row. Rows without a date are not part of any day and are not rolled
+// up. Memoized profitability months built on these tables are dropped for the same
+// days. A rebuild keeps the egg rollups of months compacted into egg_monthly_total.
+@Service
+public class DailyRollupService {
+
+    enum Rollup {
+        EGGS("daily_egg_rollup",
+                "INSERT INTO daily_egg_rollup (user_email, date, count, entries) "
+                + "SELECT user_email, date, SUM(count), COUNT(*) FROM egg_production "
+                + "WHERE %s GROUP BY user_email, date",
+                // Days of compacted months: their raw rows are gone, so the rollup is all that is left
+                "(user_email, CAST(date_trunc('month', date) AS date)) IN "
+                + "(SELECT user_email, month FROM egg_monthly_total WHERE user_email IS NOT NULL)"),
+        REVENUE("daily_revenue_rollup",
+                "INSERT INTO daily_revenue_rollup (user_email, date, category, amount, entries) "
+                + "SELECT user_email, date, " + CATEGORY + ", SUM(amount), COUNT(*) FROM revenue "
+                + "WHERE %s GROUP BY user_email, date, " + CATEGORY, null),
+        EXPENSES("daily_expense_rollup",
+                "INSERT INTO daily_expense_rollup (user_email, date, category, paid, amount, entries) "
+                + "SELECT user_email, date, " + CATEGORY + ", paid, SUM(amount), COUNT(*) FROM expense "
+                + "WHERE %s GROUP BY user_email, date, " + CATEGORY + ", paid", null);
+
+        private final String table;
+        private final String aggregate;
+        // Condition on a rollup or raw row for days a rebuild must leave alone, or null
+        private final String archived;
+
+        Rollup(String table, String aggregate, String archived) {
+            this.table = table;
+            this.aggregate = aggregate;
+            this.archived = archived;
+        }
+
+        String rebuildScope() {
+            return archived == null ? "TRUE" : "NOT " + archived;
+        }
+    }
+
+    // Blank categories are reported as "Other", as the dashboard always did
+    private static final String CATEGORY = "COALESCE(NULLIF(TRIM(category), ''), 'Other')";
+
+    private final JdbcTemplate jdbc;
+    private final ProfitabilityService profitability;
+    private final TenantService tenants;
+    private final Logger logger = LoggerFactory.getLogger(DailyRollupService.class);
+
+    public DailyRollupService(JdbcTemplate jdbc, ProfitabilityService profitability, TenantService tenants) {
+        this.jdbc = jdbc;
+        this.profitability = profitability;
+        this.tenants = tenants;
+    }
+
+    // Callers must have flushed their raw-table changes in the same transaction first
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshEggs(String userEmail, Collection<LocalDate> dates) {
+        refresh(Rollup.EGGS, userEmail, dates);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshRevenue(String userEmail, Collection<LocalDate> dates) {
+        refresh(Rollup.REVENUE, userEmail, dates);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshExpenses(String userEmail, Collection<LocalDate> dates) {
+        refresh(Rollup.EXPENSES, userEmail, dates);
+    }
+
+    // Recomputes every rollup table from scratch
+    @Transactional
+    public void rebuildAll() {
+        long started = System.currentTimeMillis();
+        for (Rollup rollup : Rollup.values()) {
+            jdbc.execute("LOCK TABLE " + rollup.table + " IN EXCLUSIVE MODE");
+            jdbc.update("DELETE FROM " + rollup.table + " WHERE " + rollup.rebuildScope());
+            int rows = jdbc.update(String.format(rollup.aggregate, "date IS NOT NULL AND " + rollup.rebuildScope()));
+            logger.info("Rebuilt {}: {} rows", rollup.table, rows);
+        }
+        profitability.clear();
+        logger.info("Rollup rebuild finished in {} ms", System.currentTimeMillis() - started);
+    }
+
+    // True when raw rows exist but none of them has been rolled up yet
+    @Transactional(readOnly = true)
+    public boolean needsInitialBuild() {
+        for (Rollup rollup : Rollup.values()) {
+            Boolean empty = jdbc.queryForObject(
+                    "SELECT NOT EXISTS (SELECT 1 FROM " + rollup.table + ")", Boolean.class);
+            if (!Boolean.TRUE.equals(empty)) {
+                return false;
+            }
+        }
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM egg_production) OR EXISTS (SELECT 1 FROM revenue) "
+                + "OR EXISTS (SELECT 1 FROM expense)", Boolean.class));
+    }
+
+    // Rollups stay keyed by email; the raw rows are found by tenant id
+    private void refresh(Rollup rollup, String userEmail, Collection<LocalDate> dates) {
+        // Sorted, so two writers touching the same days always lock them in the same order
+        SortedSet<LocalDate> days = new TreeSet<>();
+        dates.stream().filter(Objects::nonNull).forEach(days::add);
+        for (LocalDate day : days) {
+            jdbc.queryForList("SELECT pg_advisory_xact_lock(hashtext(?), ?)",
+                    rollup.table + ":" + userEmail, (int) day.toEpochDay());
+        }
+        Long tenantId = tenants.idOf(userEmail);
+        for (LocalDate day : days) {
+            Date sqlDate = Date.valueOf(day);
+            jdbc.update("DELETE FROM " + rollup.table + " WHERE user_email = ? AND date = ?", userEmail, sqlDate);
+            jdbc.update(String.format(rollup.aggregate, "tenant_id = ? AND date = ?"), tenantId, sqlDate);
+        }
+        profitability.invalidate(userEmail, days);
+    }
+}
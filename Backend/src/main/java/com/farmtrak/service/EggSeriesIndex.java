@@ -0,0 +1,294 @@
+package com.farmtrak.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.farmtrak.dto.EggTrend;
+import com.farmtrak.dto.FlockDayCount;
+import com.farmtrak.model.EggProduction;
+import com.farmtrak.model.Flock;
+import com.farmtrak.repository.EggProductionRepository;
+import com.farmtrak.repository.FlockRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Daily egg counts per flock held in memory, for trends that would otherwise load every
+// EggProduction row of their range.
+//
+// A tenant's series load on first use: per flock, an int per day indexed by epoch day,
+// covering the last `days` days that are not archived plus a month ahead. Each egg write
+// path hands its stored rows over once its transaction commits, so loaded series stay
+// current without going back to the database. The unique (tenant, flock, date) key makes
+// a day one row, so a write sets the day's count rather than adding to it.
+//
+// Writes apply in change version order (see ChangeFeedService). One the loaded snapshot
+// already holds is skipped, and one that arrives after a newer one drops the tenant's
+// series for a fresh load. Writes made by other instances show up once the series
+// reaches max-age. Tenants not read for `idle` are dropped, and past max-days flock-days
+// in total the coldest tenants are evicted.
+@Service
+public class EggSeriesIndex {
+
+    private static final int DAYS_AHEAD = 31;
+
+    // The version the rows read right after it include at least
+    private static final String LOADED_VERSION = "SELECT v.version FROM user_change_version v "
+            + "JOIN tenant t ON t.email = v.user_email WHERE t.id = ?";
+
+    private final EggProductionRepository eggRepo;
+    private final FlockRepository flockRepo;
+    private final PartitionMaintenanceService partitions;
+    private final JdbcTemplate jdbc;
+    private final int days;
+    private final Cache<Long, Series> series;
+    // Kept so that a read does not allocate a loader each time
+    private final Function<Long, Series> loader = this::load;
+
+    public EggSeriesIndex(EggProductionRepository eggRepo, FlockRepository flockRepo,
+                          PartitionMaintenanceService partitions, JdbcTemplate jdbc,
+                          @Value("${farmtrak.egg-index.days:730}") int days,
+                          @Value("${farmtrak.egg-index.max-days:20000000}") long maxDays,
+                          @Value("${farmtrak.egg-index.idle:30m}") Duration idle,
+                          @Value("${farmtrak.egg-index.max-age:15m}") Duration maxAge,
+                          MeterRegistry meterRegistry) {
+        this.eggRepo = eggRepo;
+        this.flockRepo = flockRepo;
+        this.partitions = partitions;
+        this.jdbc = jdbc;
+        this.days = days;
+        this.series = Caffeine.newBuilder()
+                .maximumWeight(maxDays)
+                .weigher((Long tenantId, Series loaded) -> loaded.weight())
+                .expireAfterAccess(idle)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, series, "eggSeries");
+    }
+
+    public EggTrend trend(Long tenantId, LocalDate from, LocalDate to, int window) {
+        return series.get(tenantId, loader).trend(from, to, window);
+    }
+
+    // Write-path hooks. Like FeedForecastService's they take effect after commit, so a
+    // rolled back write never reaches the index, and tenants not loaded are skipped.
+
+    public void recordStored(Long tenantId, long version, List<EggProduction> rows) {
+        int oldest = oldestDay();
+        int newest = newestDay();
+        apply(tenantId, version, loaded -> {
+            for (EggProduction row : rows) {
+                if (row.getFlockId() != null && row.getDate() != null) {
+                    loaded.set(row.getFlockId(), (int) row.getDate().toEpochDay(), row.getCount(), oldest, newest);
+                }
+            }
+        });
+    }
+
+    // The row that counted towards this flock and day is gone or has moved
+    public void recordCleared(Long tenantId, long version, Long flockId, LocalDate date) {
+        if (flockId == null || date == null) {
+            return;
+        }
+        apply(tenantId, version, loaded -> loaded.clear(flockId, (int) date.toEpochDay()));
+    }
+
+    public void recordFlock(Long tenantId, Flock flock) {
+        apply(tenantId, flock.getChangeVersion(), loaded -> loaded.flock(flock.getId()).numBirds = flock.getNumBirds());
+    }
+
+    public void recordFlockDeleted(Long tenantId, long version, Long flockId) {
+        apply(tenantId, version, loaded -> loaded.flock(flockId).numBirds = 0);
+    }
+
+    private void apply(Long tenantId, long version, Consumer<Series> change) {
+        Runnable action = () -> series.asMap().computeIfPresent(tenantId,
+                (key, loaded) -> loaded.apply(version, change) ? loaded : null);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Reads the version first: every write up to it is in the rows read after it
+    private Series load(Long tenantId) {
+        List<Long> versions = jdbc.queryForList(LOADED_VERSION, Long.class, tenantId);
+        Series loaded = new Series(versions.isEmpty() ? 0 : versions.get(0));
+        for (Flock flock : flockRepo.findByTenantId(tenantId)) {
+            loaded.flock(flock.getId()).numBirds = flock.getNumBirds();
+        }
+        int oldest = oldestDay();
+        int newest = newestDay();
+        for (FlockDayCount row : eggRepo.findFlockDayCounts(tenantId, LocalDate.ofEpochDay(oldest))) {
+            loaded.set(row.getFlockId(), (int) row.getDate().toEpochDay(), row.getCount(), oldest, newest);
+        }
+        return loaded;
+    }
+
+    private int oldestDay() {
+        LocalDate oldest = LocalDate.now().minusDays(days);
+        LocalDate archivedBefore = partitions.archivedBefore();
+        if (archivedBefore != null && archivedBefore.isAfter(oldest)) {
+            oldest = archivedBefore;
+        }
+        return (int) oldest.toEpochDay();
+    }
+
+    private static int newestDay() {
+        return (int) LocalDate.now().plusDays(DAYS_AHEAD).toEpochDay();
+    }
+
+    // One tenant's flocks, in id order
+    private static final class Series {
+
+        private final Map<Long, FlockDays> flocks = new TreeMap<>();
+        private final long loadedVersion;
+        private long appliedVersion;
+
+        Series(long loadedVersion) {
+            this.loadedVersion = loadedVersion;
+            this.appliedVersion = loadedVersion;
+        }
+
+        // Returns false when the change arrived out of order and the series must be reloaded
+        synchronized boolean apply(long version, Consumer<Series> change) {
+            if (version <= loadedVersion) {
+                return true;
+            }
+            if (version < appliedVersion) {
+                return false;
+            }
+            appliedVersion = version;
+            change.accept(this);
+            return true;
+        }
+
+        // Caller holds the monitor, or is the loader
+        FlockDays flock(Long flockId) {
+            return flocks.computeIfAbsent(flockId, id -> new FlockDays());
+        }
+
+        void set(Long flockId, int day, int count, int oldest, int newest) {
+            if (day >= oldest && day <= newest) {
+                flock(flockId).set(day, count);
+            }
+        }
+
+        void clear(Long flockId, int day) {
+            FlockDays flock = flocks.get(flockId);
+            if (flock != null && flock.get(day) != 0) {
+                flock.set(day, 0);
+            }
+        }
+
+        synchronized int weight() {
+            int weight = 1;
+            for (FlockDays flock : flocks.values()) {
+                weight += 1 + flock.counts.length;
+            }
+            return weight;
+        }
+
+        synchronized EggTrend trend(LocalDate fromDate, LocalDate toDate, int window) {
+            int from = (int) fromDate.toEpochDay();
+            int to = (int) toDate.toEpochDay();
+            int windowFrom = Math.max(from, to - window + 1);
+            int windowDays = to - windowFrom + 1;
+            long total = 0;
+            long windowTotal = 0;
+            long birds = 0;
+            List<EggTrend.FlockTrend> trends = new ArrayList<>(flocks.size());
+            for (Map.Entry<Long, FlockDays> entry : flocks.entrySet()) {
+                FlockDays flock = entry.getValue();
+                long flockTotal = flock.sum(from, to);
+                long flockWindow = flock.sum(windowFrom, to);
+                int[] daily = new int[to - from + 1];
+                flock.copy(from, daily);
+                trends.add(new EggTrend.FlockTrend(entry.getKey(), flock.numBirds, flockTotal,
+                        (double) flockWindow / windowDays, rate(flockTotal, flock.numBirds, daily.length), daily));
+                total += flockTotal;
+                windowTotal += flockWindow;
+                birds += flock.numBirds;
+            }
+            return new EggTrend(fromDate, toDate, windowDays, total, (double) windowTotal / windowDays,
+                    rate(total, birds, to - from + 1), trends);
+        }
+
+        private static double rate(long eggs, long birds, int days) {
+            return birds > 0 && days > 0 ? (double) eggs / ((double) birds * days) : 0;
+        }
+    }
+
+    // counts[i] is the count of day first + i; days outside the array have none
+    private static final class FlockDays {
+
+        private static final int[] EMPTY = new int[0];
+        // Room added past the newest day, so daily writes rarely copy the array
+        private static final int SLACK = 32;
+
+        private int numBirds;
+        private int first;
+        private int[] counts = EMPTY;
+
+        int get(int day) {
+            int i = day - first;
+            return i >= 0 && i < counts.length ? counts[i] : 0;
+        }
+
+        void set(int day, int count) {
+            if (counts.length == 0) {
+                first = day;
+                counts = new int[SLACK];
+            } else if (day < first) {
+                int[] grown = new int[counts.length + first - day];
+                System.arraycopy(counts, 0, grown, first - day, counts.length);
+                counts = grown;
+                first = day;
+            } else if (day - first >= counts.length) {
+                counts = Arrays.copyOf(counts, day - first + SLACK);
+            }
+            counts[day - first] = count;
+        }
+
+        long sum(int from, int to) {
+            int start = Math.max(from - first, 0);
+            int end = Math.min(to - first, counts.length - 1);
+            long sum = 0;
+            for (int i = start; i <= end; i++) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+
+        // Fills into[] with the counts of the days from `from` on
+        void copy(int from, int[] into) {
+            int start = Math.max(first - from, 0);
+            int end = Math.min(first + counts.length - from, into.length);
+            for (int i = start; i < end; i++) {
+                into[i] = counts[from + i - first];
+            }
+        }
+    }
+}
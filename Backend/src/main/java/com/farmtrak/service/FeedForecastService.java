@@ -0,0 +1,276 @@
+package com.farmtrak.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.farmtrak.dto.FeedForecast;
+import com.farmtrak.model.FeedRecord;
+import com.farmtrak.model.Flock;
+import com.farmtrak.repository.FeedRecordRepository;
+import com.farmtrak.repository.FlockRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Feed consumption forecasts. A bird type's rate is the feed given over the bird-days it
+// lasted, summed across its newest `window` records, in kg per bird per day.
+//
+// Each user's windows are held in memory and kept current by the feed record write path
+// once its transaction commits: a new record is added to its window in memory, and an
+// update or delete of a record a window holds drops the user's model, for the next
+// forecast to load again with one query. A forecast otherwise costs one flock query
+// however long the feed history is.
+@Service
+public class FeedForecastService {
+
+    // Records carry no age, so their rates are taken as grown-bird intake. Younger birds
+    // eat less: from CHICK_INTAKE of the grown rate at hatch, rising linearly to all of it
+    // at the type's maturity age.
+    private static final double CHICK_INTAKE = 0.2;
+    private static final Map<String, Integer> MATURITY_WEEKS = Map.of("Broiler", 6, "Layer", 20);
+    private static final int DEFAULT_MATURITY_WEEKS = 16;
+
+    private final FeedRecordRepository feedRepo;
+    private final FlockRepository flockRepo;
+    private final TenantService tenants;
+    private final int window;
+    private final Cache<String, UserModel> models;
+
+    public FeedForecastService(FeedRecordRepository feedRepo, FlockRepository flockRepo, TenantService tenants,
+                               @Value("${farmtrak.feed-forecast.window:30}") int window,
+                               @Value("${farmtrak.feed-forecast.max-users:5000}") long maxUsers,
+                               @Value("${farmtrak.feed-forecast.idle:1h}") Duration idle,
+                               MeterRegistry meterRegistry) {
+        this.feedRepo = feedRepo;
+        this.flockRepo = flockRepo;
+        this.tenants = tenants;
+        this.window = window;
+        this.models = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idle)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, models, "feedForecastModels");
+    }
+
+    // stockKg is the feed on hand for the whole farm, or null if unknown
+    public FeedForecast forecast(String userEmail, Double stockKg) {
+        LocalDate today = LocalDate.now();
+        Map<String, Rate> rates = models.get(userEmail, this::load).rates();
+
+        Rate farmRate = Rate.pooled(rates.values());
+        List<FeedForecast.FlockForecast> flocks = new ArrayList<>();
+        double farmDailyKg = 0;
+        for (Flock flock : flockRepo.findByTenantId(tenants.idOf(userEmail))) {
+            String birdName = birdNameOf(flock);
+            int ageWeeks = ageWeeks(flock, today);
+            Rate rate = rates.getOrDefault(birdName, farmRate);
+            Double kgPerBirdPerDay = null;
+            Double dailyKg = null;
+            Double daysUntilEmpty = null;
+            if (rate.birdDays() > 0) {
+                kgPerBirdPerDay = rate.kgPerBirdPerDay() * ageFactor(flock.getBirdType(), ageWeeks);
+                dailyKg = kgPerBirdPerDay * flock.getNumBirds();
+                farmDailyKg += dailyKg;
+                if (rates.containsKey(birdName) && dailyKg > 0) {
+                    daysUntilEmpty = rate.latestFeedKg() / dailyKg;
+                }
+            }
+            flocks.add(new FeedForecast.FlockForecast(flock.getId(), birdName, flock.getNumBirds(), ageWeeks,
+                    kgPerBirdPerDay, dailyKg, daysUntilEmpty));
+        }
+
+        List<FeedForecast.BirdRate> birdRates = new ArrayList<>();
+        rates.forEach((birdName, rate) ->
+                birdRates.add(new FeedForecast.BirdRate(birdName, rate.records(), rate.kgPerBirdPerDay())));
+        birdRates.sort(Comparator.comparing(FeedForecast.BirdRate::getBirdName));
+
+        Double daysUntilEmpty = null;
+        LocalDate runOutDate = null;
+        if (stockKg != null && farmDailyKg > 0) {
+            daysUntilEmpty = stockKg / farmDailyKg;
+            runOutDate = today.plusDays((long) Math.floor(daysUntilEmpty));
+        }
+        return new FeedForecast(today, farmDailyKg, stockKg, daysUntilEmpty, runOutDate, birdRates, flocks);
+    }
+
+    // Write-path hooks. They take effect after commit, so a rolled back write never
+    // reaches the model; users without a loaded model are skipped and load fresh later.
+    // A change the model cannot take in memory drops it rather than querying here, after
+    // the transaction and inside the cache's lock.
+    public void recordSaved(String userEmail, FeedRecord saved) {
+        afterCommit(() -> models.asMap().computeIfPresent(userEmail, (key, model) ->
+                model.namesHolding(saved.getId()).isEmpty() && model.add(saved) ? model : null));
+    }
+
+    public void recordDeleted(String userEmail, Long id) {
+        afterCommit(() -> models.asMap().computeIfPresent(userEmail, (key, model) ->
+                model.namesHolding(id).isEmpty() ? model : null));
+    }
+
+    private UserModel load(String userEmail) {
+        UserModel model = new UserModel(window);
+        Map<String, List<FeedRecord>> byName = new HashMap<>();
+        for (FeedRecord record : feedRepo.findRecentPerBirdName(tenants.idOf(userEmail), window)) {
+            byName.computeIfAbsent(record.getBirdName(), name -> new ArrayList<>()).add(record);
+        }
+        byName.forEach(model::reload);
+        return model;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // The name the Feed Predictor page records feed under for this flock's birds
+    static String birdNameOf(Flock flock) {
+        if ("Other".equals(flock.getBirdType())) {
+            return flock.getCustomBird() != null && !flock.getCustomBird().isBlank() ? flock.getCustomBird() : "Other";
+        }
+        return flock.getBirdType();
+    }
+
+    // Age is entered in weeks as of the start date and grows from there
+    static int ageWeeks(Flock flock, LocalDate today) {
+        if (flock.getStartDate() == null || flock.getStartDate().isAfter(today)) {
+            return flock.getAge();
+        }
+        return flock.getAge() + (int) ChronoUnit.WEEKS.between(flock.getStartDate(), today);
+    }
+
+    static double ageFactor(String birdType, int ageWeeks) {
+        int maturity = MATURITY_WEEKS.getOrDefault(birdType, DEFAULT_MATURITY_WEEKS);
+        if (ageWeeks >= maturity) {
+            return 1.0;
+        }
+        return CHICK_INTAKE + (1.0 - CHICK_INTAKE) * Math.max(ageWeeks, 0) / maturity;
+    }
+
+    private record Rate(int records, double feedKg, double birdDays, double latestFeedKg) {
+
+        double kgPerBirdPerDay() {
+            return birdDays > 0 ? feedKg / birdDays : 0;
+        }
+
+        static Rate pooled(Iterable<Rate> rates) {
+            int records = 0;
+            double feedKg = 0;
+            double birdDays = 0;
+            for (Rate rate : rates) {
+                records += rate.records;
+                feedKg += rate.feedKg;
+                birdDays += rate.birdDays;
+            }
+            return new Rate(records, feedKg, birdDays, 0);
+        }
+    }
+
+    // One user's rolling windows, keyed by bird name. Each window keeps its records by id
+    // with running sums, so adding a record and reading a rate are O(log window).
+    private static final class UserModel {
+
+        private final int size;
+        private final Map<String, Window> windows = new HashMap<>();
+
+        UserModel(int size) {
+            this.size = size;
+        }
+
+        synchronized Map<String, Rate> rates() {
+            Map<String, Rate> rates = new HashMap<>();
+            windows.forEach((birdName, window) -> rates.put(birdName, window.rate()));
+            return rates;
+        }
+
+        // Returns false when the record belongs in the middle of a window it did not fit
+        // the end of, for the caller to reload that window instead
+        synchronized boolean add(FeedRecord record) {
+            if (record.getBirdName() == null || record.getNumBirds() <= 0 || record.getDaysLasted() <= 0) {
+                return true;
+            }
+            return windows.computeIfAbsent(record.getBirdName(), name -> new Window()).add(record, size);
+        }
+
+        synchronized Set<String> namesHolding(Long id) {
+            Set<String> names = new HashSet<>();
+            windows.forEach((birdName, window) -> {
+                if (window.records.containsKey(id)) {
+                    names.add(birdName);
+                }
+            });
+            return names;
+        }
+
+        synchronized void reload(String birdName, List<FeedRecord> records) {
+            if (records.isEmpty()) {
+                windows.remove(birdName);
+                return;
+            }
+            Window window = new Window();
+            records.forEach(window::put);
+            windows.put(birdName, window);
+        }
+    }
+
+    private static final class Window {
+
+        private final TreeMap<Long, FeedRecord> records = new TreeMap<>();
+        private double feedKg;
+        private double birdDays;
+
+        boolean add(FeedRecord record, int size) {
+            if (records.size() >= size && record.getId() < records.firstKey()) {
+                return true;
+            }
+            if (!records.isEmpty() && record.getId() < records.lastKey()) {
+                return false;
+            }
+            put(record);
+            while (records.size() > size) {
+                remove(records.firstKey());
+            }
+            return true;
+        }
+
+        void put(FeedRecord record) {
+            records.put(record.getId(), record);
+            feedKg += record.getTotalFeedGiven();
+            birdDays += (double) record.getNumBirds() * record.getDaysLasted();
+        }
+
+        private void remove(Long id) {
+            FeedRecord record = records.remove(id);
+            feedKg -= record.getTotalFeedGiven();
+            birdDays -= (double) record.getNumBirds() * record.getDaysLasted();
+        }
+
+        Rate rate() {
+            return new Rate(records.size(), feedKg, birdDays, records.lastEntry().getValue().getTotalFeedGiven());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.farmtrak.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Read-through cache of each user's full list per resource, in front of findByTenantId.
+// Write paths call invalidate() for the (resource, user) they changed. The ETag is a
+// hash of the list contents, so it survives evictions and restarts unchanged. It is weak:
+// the JSON, CBOR and Smile encodings of a list and their gzipped forms all share it.
+@Service
+public class ListCache {
+
+    private record Key(String resource, String userEmail) {
+    }
+
+    private final boolean enabled;
+    private final Cache<Key, CachedList<?>> cache;
+
+    public ListCache(@Value("${farmtrak.list-cache.enabled:true}") boolean enabled,
+                     @Value("${farmtrak.list-cache.max-size:5000}") long maxSize,
+                     @Value("${farmtrak.list-cache.ttl:10m}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "listCache");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CachedList<T> get(String resource, String userEmail, Supplier<List<T>> loader) {
+        if (!enabled) {
+            return load(loader);
+        }
+        return (CachedList<T>) cache.get(new Key(resource, userEmail), key -> load(loader));
+    }
+
+    // Drops the entry now and again once the surrounding transaction commits, so a read
+    // racing the write cannot put the pre-commit list back into the cache
+    public void invalidate(String resource, String userEmail) {
+        Key key = new Key(resource, userEmail);
+        cache.invalidate(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(key);
+                }
+            });
+        }
+    }
+
+    // For changes that are not one user's write, such as egg compaction; timed like invalidate()
+    public void invalidateAll(String resource) {
+        cache.asMap().keySet().removeIf(key -> key.resource().equals(resource));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.asMap().keySet().removeIf(key -> key.resource().equals(resource));
+                }
+            });
+        }
+    }
+
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    private static <T> CachedList<T> load(Supplier<List<T>> loader) {
+        List<T> rows = List.copyOf(loader.get());
+        return new CachedList<>(rows, etagOf(rows));
+    }
+
+    private static String etagOf(List<?> rows) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object row : rows) {
+                digest.update(String.valueOf(row).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.farmtrak.service;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Keeps the monthly range partitions of egg_production, expense and revenue in shape
+// (see MonthlyPartitionMigration), every maintenance-interval and once after migrating.
+//
+// Each table has a partition per month named <table>_yyyy_mm and a <table>_default one
+// for rows without a date or outside every month. Partitions are created months-ahead
+// ahead of time, so current writes never land in the default partition; rows that do,
+// such as back-dated entries, are moved into a new partition for their month on the next
+// run. Queries for recent dates then only touch the few partitions they cover.
+//
+// egg_production's month and default partitions are each split again into
+// farmtrak.tenants.egg-partitions hash partitions on tenant_id, <partition>_p<n>, so a
+// farm's rows of a month sit in one small table. Months created before the split was
+// added stay whole until they are compacted.
+//
+// With egg-raw-months set, raw egg rows are kept for that many months. Older months are
+// compacted: their rows are summed per flock into egg_monthly_total and the month's
+// partition is dropped. The farm's per-day totals of those months stay in
+// daily_egg_rollup, and egg writes dated before archivedBefore() are refused, so both stay
+// exact. 0, the default, keeps raw rows forever.
+//
+// Compaction changes what the API returns: days of archived months leave /api/eggs, its
+// export and the change feed, and are only found per flock and month on /api/eggs/monthly
+// (and in the profitability report). Each dropped row gets a tombstone under a new change
+// version of its user, so synced clients drop their copies on their next sync.
+//
+// Each step runs in its own transaction under an advisory lock, so instances sharing
+// a database skip steps another one is running.
+@Service
+public class PartitionMaintenanceService {
+
+    public static final List<String> TABLES = List.of("egg_production", "expense", "revenue");
+
+    private static final String EGGS = "egg_production";
+    // The change feed's resource name for egg rows, as EggProductionController records it
+    private static final String EGG_RESOURCE = "EggProduction";
+
+    // %s is the statement producing the month's raw rows
+    private static final String COMPACT =
+            "WITH rows AS (%s) "
+            + "INSERT INTO egg_monthly_total (tenant_id, user_email, flock_id, month, count, entries) "
+            + "SELECT tenant_id, MIN(user_email), flock_id, ?, SUM(count), COUNT(*) FROM rows "
+            + "GROUP BY tenant_id, flock_id "
+            + "ON CONFLICT (tenant_id, flock_id, month) DO UPDATE "
+            + "SET count = egg_monthly_total.count + EXCLUDED.count, "
+            + "entries = egg_monthly_total.entries + EXCLUDED.entries";
+
+    // %s is the statement producing the month's raw rows. Takes one new change version per
+    // user with rows in the month and stamps a tombstone for each row with it.
+    private static final String TOMBSTONES =
+            "WITH rows AS (%s), "
+            + "versions AS (INSERT INTO user_change_version (user_email, version) "
+            + "  SELECT DISTINCT user_email, 1 FROM rows WHERE user_email IS NOT NULL ORDER BY user_email "
+            + "  ON CONFLICT (user_email) DO UPDATE SET version = user_change_version.version + 1 "
+            + "  RETURNING user_email, version) "
+            + "INSERT INTO change_tombstone (user_email, resource, entity_id, change_version) "
+            + "SELECT r.user_email, '" + EGG_RESOURCE + "', r.id, v.version FROM rows r JOIN versions v "
+            + "ON v.user_email = r.user_email";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final ListCache listCache;
+    private final int monthsAhead;
+    private final int eggRawMonths;
+    private final int eggTenantPartitions;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "partition-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter createdPartitions;
+    private final Counter compactedMonths;
+    private final Counter compactedRows;
+    private final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    public PartitionMaintenanceService(JdbcTemplate jdbc, TransactionTemplate transactions, ListCache listCache,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${farmtrak.partitions.months-ahead:3}") int monthsAhead,
+                                       @Value("${farmtrak.partitions.egg-raw-months:0}") int eggRawMonths,
+                                       @Value("${farmtrak.partitions.maintenance-interval:6h}") Duration interval,
+                                       @Value("${farmtrak.tenants.egg-partitions:16}") int eggTenantPartitions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.listCache = listCache;
+        this.monthsAhead = monthsAhead;
+        this.eggRawMonths = eggRawMonths;
+        this.eggTenantPartitions = eggTenantPartitions;
+        this.createdPartitions = meterRegistry.counter("farmtrak.partitions.created");
+        this.compactedMonths = meterRegistry.counter("farmtrak.partitions.compacted.months");
+        this.compactedRows = meterRegistry.counter("farmtrak.partitions.compacted.rows");
+
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    // First day whose raw egg rows are kept, or null when none are compacted
+    public LocalDate archivedBefore() {
+        return archivedBefore(LocalDate.now());
+    }
+
+    // The same as of another day, e.g. to see where the horizon will be by then
+    public LocalDate archivedBefore(LocalDate asOf) {
+        return eggRawMonths > 0 ? YearMonth.from(asOf).minusMonths(eggRawMonths).atDay(1) : null;
+    }
+
+    public boolean isArchived(LocalDate date) {
+        LocalDate horizon = archivedBefore();
+        return horizon != null && date != null && date.isBefore(horizon);
+    }
+
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        LocalDate horizon = archivedBefore();
+        for (String table : TABLES) {
+            if (!isRangePartitioned(jdbc, table)) {
+                continue;
+            }
+            for (int i = 0; i <= monthsAhead; i++) {
+                YearMonth month = current.plusMonths(i);
+                locked(table, () -> {
+                    if (!hasPartition(table, month)) {
+                        addMonth(table, month);
+                        createdPartitions.increment();
+                    }
+                });
+            }
+            for (YearMonth month : defaultMonths(table)) {
+                if (table.equals(EGGS) && horizon != null && month.atDay(1).isBefore(horizon)) {
+                    locked(table, () -> compactDefault(month));
+                } else {
+                    locked(table, () -> {
+                        if (!hasPartition(table, month)) {
+                            addMonth(table, month);
+                            createdPartitions.increment();
+                        }
+                    });
+                }
+            }
+        }
+        if (horizon != null && isRangePartitioned(jdbc, EGGS)) {
+            for (YearMonth month : partitionMonths(EGGS)) {
+                if (month.atDay(1).isBefore(horizon)) {
+                    locked(EGGS, () -> compactPartition(month));
+                }
+            }
+        }
+    }
+
+    // Creates the month's partition and moves any of its rows out of the default partition
+    public void addMonth(String table, YearMonth month) {
+        String partition = partitionName(table, month);
+        Date from = Date.valueOf(month.atDay(1));
+        Date until = Date.valueOf(month.plusMonths(1).atDay(1));
+        jdbc.execute("CREATE TABLE " + partition + " (LIKE " + table + " INCLUDING DEFAULTS)" + tenantSplit(table));
+        addTenantPartitions(table, partition);
+        jdbc.update("WITH moved AS (DELETE FROM " + table + "_default WHERE date >= ? AND date < ? RETURNING *) "
+                + "INSERT INTO " + partition + " SELECT * FROM moved", from, until);
+        jdbc.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition
+                + " FOR VALUES FROM ('" + from + "') TO ('" + until + "')");
+    }
+
+    public void addDefault(String table) {
+        String partition = table + "_default";
+        jdbc.execute("CREATE TABLE " + partition + " PARTITION OF " + table + " DEFAULT" + tenantSplit(table));
+        addTenantPartitions(table, partition);
+    }
+
+    public static boolean isRangePartitioned(JdbcTemplate jdbc, String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?) "
+                + "AND partstrat = 'r')", Boolean.class, table));
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return String.format("%s_%04d_%02d", table, month.getYear(), month.getMonthValue());
+    }
+
+    private String tenantSplit(String table) {
+        return table.equals(EGGS) && eggTenantPartitions > 1 ? " PARTITION BY HASH (tenant_id)" : "";
+    }
+
+    private void addTenantPartitions(String table, String partition) {
+        if (tenantSplit(table).isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < eggTenantPartitions; i++) {
+            jdbc.execute("CREATE TABLE " + partition + "_p" + i + " PARTITION OF " + partition
+                    + " FOR VALUES WITH (MODULUS " + eggTenantPartitions + ", REMAINDER " + i + ")");
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            logger.error("Partition maintenance failed, retrying with the next run", e);
+        }
+    }
+
+    private void locked(String table, Runnable step) {
+        transactions.executeWithoutResult(status -> {
+            Boolean acquired = jdbc.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class,
+                    "partitions:" + table);
+            if (Boolean.TRUE.equals(acquired)) {
+                step.run();
+            }
+        });
+    }
+
+    private boolean hasPartition(String table, YearMonth month) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                partitionName(table, month)));
+    }
+
+    private List<YearMonth> defaultMonths(String table) {
+        return jdbc.queryForList("SELECT DISTINCT CAST(date_trunc('month', date) AS date) FROM " + table
+                        + "_default WHERE date IS NOT NULL", Date.class)
+                .stream().map(date -> YearMonth.from(date.toLocalDate())).sorted().toList();
+    }
+
+    private List<YearMonth> partitionMonths(String table) {
+        String prefix = table + "_";
+        return jdbc.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass(?)", String.class, table)
+                .stream()
+                .map(name -> name.substring(prefix.length()))
+                .filter(suffix -> suffix.matches("\\d{4}_\\d{2}"))
+                .map(suffix -> YearMonth.of(Integer.parseInt(suffix.substring(0, 4)),
+                        Integer.parseInt(suffix.substring(5))))
+                .sorted()
+                .toList();
+    }
+
+    // Sums the month's partition into egg_monthly_total and drops it. The lock keeps
+    // writes out in between; reads keep going until the drop.
+    private void compactPartition(YearMonth month) {
+        String partition = partitionName(EGGS, month);
+        jdbc.execute("LOCK TABLE " + partition + " IN EXCLUSIVE MODE");
+        Integer rows = jdbc.queryForObject("SELECT COUNT(*) FROM " + partition, Integer.class);
+        jdbc.update(String.format(TOMBSTONES, "SELECT user_email, id FROM " + partition));
+        jdbc.update(String.format(COMPACT, "SELECT * FROM " + partition), Date.valueOf(month.atDay(1)));
+        jdbc.execute("DROP TABLE " + partition);
+        finishCompaction(month, rows == null ? 0 : rows);
+    }
+
+    // Stray rows of an archived month that sat in the default partition are added to its totals
+    private void compactDefault(YearMonth month) {
+        Date from = Date.valueOf(month.atDay(1));
+        Date until = Date.valueOf(month.plusMonths(1).atDay(1));
+        Integer rows = jdbc.queryForObject("SELECT COUNT(*) FROM " + EGGS + "_default WHERE date >= ? AND date < ?",
+                Integer.class, from, until);
+        jdbc.update(String.format(TOMBSTONES, "SELECT user_email, id FROM " + EGGS + "_default "
+                + "WHERE date >= ? AND date < ?"), from, until);
+        jdbc.update(String.format(COMPACT, "DELETE FROM " + EGGS + "_default WHERE date >= ? AND date < ? RETURNING *"),
+                from, until, from);
+        finishCompaction(month, rows == null ? 0 : rows);
+    }
+
+    private void finishCompaction(YearMonth month, int rows) {
+        compactedMonths.increment();
+        compactedRows.increment(rows);
+        listCache.invalidateAll("EggProduction");
+        logger.info("Compacted {} egg rows of {} into monthly totals", rows, month);
+    }
+}
@@ -0,0 +1,235 @@
+package com.farmtrak.service;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.farmtrak.dto.ProfitabilityReport;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Per-flock, per-month profitability, computed in one query on the database side.
+//
+// Expenses and revenue come from the daily rollup tables and eggs per flock from
+// egg_production, which like flock is keyed by tenant id, plus egg_monthly_total for
+// compacted months. Farm-level money is shared out over the flocks with a window sum of
+// their bird-days per month. A flock's bird-days count its current numBirds from its start
+// date on, since bird counts have no history.
+//
+// Computed months are memoized per user. A month stays valid until a write touches one of
+// its days: the rollup refresh that every expense, revenue and egg write already does
+// calls invalidate() with those days, and flock writes drop the user's months. Closed
+// months are therefore computed once, and the current month again after each write to it.
+// That only holds for reads that see every committed write, so the report is computed on
+// the primary and never on a replica (see AnalyticsController).
+@Service
+public class ProfitabilityService {
+
+    private static final String REPORT_SQL =
+            "WITH months AS ("
+            + "  SELECT CAST(m AS date) AS month FROM generate_series(CAST(:first AS timestamp), "
+            + "  CAST(:last AS timestamp), interval '1 month') m), "
+            + "flock_days AS ("
+            + "  SELECT m.month, f.id AS flock_id, f.num_birds, f.num_birds * ("
+            + "    CAST(m.month + interval '1 month' AS date) - GREATEST(m.month, COALESCE(f.start_date, m.month))"
+            + "  ) AS bird_days "
+            + "  FROM months m JOIN flock f ON f.tenant_id = :tenantId "
+            + "  AND COALESCE(f.start_date, m.month) < m.month + interval '1 month'), "
+            + "flock_eggs AS ("
+            + "  SELECT month, flock_id, SUM(eggs) AS eggs FROM ("
+            + "    SELECT CAST(date_trunc('month', date) AS date) AS month, flock_id, count AS eggs "
+            + "    FROM egg_production WHERE tenant_id = :tenantId AND date >= :from AND date < :until "
+            + "    UNION ALL SELECT month, flock_id, count FROM egg_monthly_total "
+            + "    WHERE tenant_id = :tenantId AND month >= :from AND month < :until) e "
+            + "  GROUP BY 1, 2), "
+            + "farm_eggs AS ("
+            + "  SELECT CAST(date_trunc('month', date) AS date) AS month, SUM(count) AS eggs "
+            + "  FROM daily_egg_rollup WHERE user_email = :userEmail AND date >= :from AND date < :until "
+            + "  GROUP BY 1), "
+            + "expenses AS ("
+            + "  SELECT CAST(date_trunc('month', date) AS date) AS month, SUM(amount) AS amount "
+            + "  FROM daily_expense_rollup WHERE user_email = :userEmail AND date >= :from AND date < :until "
+            + "  GROUP BY 1), "
+            + "revenue AS ("
+            + "  SELECT CAST(date_trunc('month', date) AS date) AS month, SUM(amount) AS amount "
+            + "  FROM daily_revenue_rollup WHERE user_email = :userEmail AND date >= :from AND date < :until "
+            + "  GROUP BY 1), "
+            + "shares AS ("
+            + "  SELECT fd.*, CAST(fd.bird_days AS double precision) "
+            + "    / NULLIF(SUM(fd.bird_days) OVER (PARTITION BY fd.month), 0) AS share "
+            + "  FROM flock_days fd) "
+            + "SELECT m.month, s.flock_id, s.num_birds, s.bird_days, COALESCE(fe.eggs, 0) AS flock_eggs, "
+            + "  COALESCE(x.amount, 0) * s.share AS flock_expenses, COALESCE(r.amount, 0) * s.share AS flock_revenue, "
+            + "  COALESCE(e.eggs, 0) AS month_eggs, COALESCE(x.amount, 0) AS month_expenses, "
+            + "  COALESCE(r.amount, 0) AS month_revenue "
+            + "FROM months m "
+            + "LEFT JOIN shares s ON s.month = m.month "
+            + "LEFT JOIN flock_eggs fe ON fe.month = m.month AND fe.flock_id = s.flock_id "
+            + "LEFT JOIN farm_eggs e ON e.month = m.month "
+            + "LEFT JOIN expenses x ON x.month = m.month "
+            + "LEFT JOIN revenue r ON r.month = m.month "
+            + "ORDER BY m.month, s.flock_id";
+
+    // One user's memoized months. The generation moves on every invalidation, so a month
+    // computed from a snapshot older than a write is not stored after that write.
+    private static final class UserMonths {
+        private final Map<YearMonth, ProfitabilityReport.MonthProfit> months = new HashMap<>();
+        private long generation;
+    }
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TenantService tenants;
+    private final Cache<String, UserMonths> cache;
+
+    public ProfitabilityService(NamedParameterJdbcTemplate jdbc, TenantService tenants,
+                                @Value("${farmtrak.profitability.max-users:5000}") long maxUsers,
+                                @Value("${farmtrak.profitability.idle:1h}") Duration idle,
+                                MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.tenants = tenants;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(idle)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "profitabilityCache");
+    }
+
+    public ProfitabilityReport report(String userEmail, YearMonth first, YearMonth last) {
+        UserMonths user = cache.get(userEmail, key -> new UserMonths());
+        Map<YearMonth, ProfitabilityReport.MonthProfit> found = new HashMap<>();
+        YearMonth firstMissing = null;
+        YearMonth lastMissing = null;
+        long generation;
+        synchronized (user) {
+            generation = user.generation;
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                ProfitabilityReport.MonthProfit cached = user.months.get(month);
+                if (cached != null) {
+                    found.put(month, cached);
+                } else {
+                    firstMissing = firstMissing == null ? month : firstMissing;
+                    lastMissing = month;
+                }
+            }
+        }
+
+        // One query covers the span of missing months; months in it that were cached are
+        // recomputed too, which is cheaper than a query per gap
+        if (firstMissing != null) {
+            Map<YearMonth, ProfitabilityReport.MonthProfit> computed = compute(userEmail, firstMissing, lastMissing);
+            synchronized (user) {
+                if (user.generation == generation) {
+                    user.months.putAll(computed);
+                }
+            }
+            found.putAll(computed);
+        }
+
+        List<ProfitabilityReport.MonthProfit> months = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            months.add(found.get(month));
+        }
+        return new ProfitabilityReport(months);
+    }
+
+    // Drops the months holding any of the given days, now and again once the surrounding
+    // transaction has finished
+    public void invalidate(String userEmail, Collection<LocalDate> dates) {
+        List<YearMonth> months = dates.stream().filter(Objects::nonNull).map(YearMonth::from).distinct().toList();
+        if (!months.isEmpty()) {
+            afterCompletion(() -> drop(userEmail, months));
+        }
+    }
+
+    public void invalidateAll(String userEmail) {
+        afterCompletion(() -> drop(userEmail, null));
+    }
+
+    public void clear() {
+        afterCompletion(cache::invalidateAll);
+    }
+
+    private void drop(String userEmail, List<YearMonth> months) {
+        UserMonths user = cache.getIfPresent(userEmail);
+        if (user == null) {
+            return;
+        }
+        synchronized (user) {
+            user.generation++;
+            if (months == null) {
+                user.months.clear();
+            } else {
+                months.forEach(user.months::remove);
+            }
+        }
+    }
+
+    private Map<YearMonth, ProfitabilityReport.MonthProfit> compute(String userEmail, YearMonth first, YearMonth last) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userEmail", userEmail)
+                .addValue("tenantId", tenants.idOf(userEmail))
+                .addValue("first", Date.valueOf(first.atDay(1)))
+                .addValue("last", Date.valueOf(last.atDay(1)))
+                .addValue("from", Date.valueOf(first.atDay(1)))
+                .addValue("until", Date.valueOf(last.plusMonths(1).atDay(1)));
+
+        Map<YearMonth, ProfitabilityReport.MonthProfit> months = new LinkedHashMap<>();
+        jdbc.query(REPORT_SQL, params, (RowCallbackHandler) rs -> {
+            YearMonth month = YearMonth.from(rs.getDate("month").toLocalDate());
+            ProfitabilityReport.MonthProfit profit = months.get(month);
+            if (profit == null) {
+                long eggs = rs.getLong("month_eggs");
+                double expenses = rs.getDouble("month_expenses");
+                double revenue = rs.getDouble("month_revenue");
+                profit = new ProfitabilityReport.MonthProfit(month, eggs, expenses, revenue, revenue - expenses,
+                        eggs > 0 ? expenses / eggs : null, new ArrayList<>());
+                months.put(month, profit);
+            }
+            long flockId = rs.getLong("flock_id");
+            if (rs.wasNull()) {
+                return;
+            }
+            int numBirds = rs.getInt("num_birds");
+            long eggs = rs.getLong("flock_eggs");
+            double expenses = rs.getDouble("flock_expenses");
+            double revenue = rs.getDouble("flock_revenue");
+            profit.getFlocks().add(new ProfitabilityReport.FlockProfit(flockId, numBirds, rs.getLong("bird_days"),
+                    eggs, expenses, revenue, revenue - expenses,
+                    eggs > 0 ? expenses / eggs : null,
+                    numBirds > 0 ? revenue / numBirds : null));
+        });
+        return months;
+    }
+
+    private static void afterCompletion(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.farmtrak.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Resolves a user's email to the numeric tenant id the data tables are keyed by. The
+// AuthInterceptor resolves it once per request, outside any transaction, and creates the
+// tenant row on the user's first request; ids never change, so they are cached for good.
+@Service
+public class TenantService {
+
+    private static final String FIND = "SELECT id FROM tenant WHERE email = ?";
+
+    // Returns the id whether this statement or a concurrent one inserted the row. DO NOTHING
+    // would return no row when a concurrent insert committed after this statement's snapshot
+    // was taken; the no-op update waits for that insert and returns its row instead.
+    private static final String CREATE =
+            "INSERT INTO tenant (email) VALUES (?) ON CONFLICT (email) DO UPDATE SET email = EXCLUDED.email "
+            + "RETURNING id";
+
+    private final JdbcTemplate jdbc;
+    private final Cache<String, Long> ids;
+
+    public TenantService(JdbcTemplate jdbc,
+                         @Value("${farmtrak.tenants.cache-size:100000}") long cacheSize,
+                         MeterRegistry meterRegistry) {
+        this.jdbc = jdbc;
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, ids, "tenantIds");
+    }
+
+    public Long idOf(String userEmail) {
+        return ids.get(userEmail, this::lookup);
+    }
+
+    // Reads first, so a cache miss inside a read-only transaction only inserts for a user
+    // the AuthInterceptor has not seen, which does not happen
+    private Long lookup(String userEmail) {
+        List<Long> found = jdbc.queryForList(FIND, Long.class, userEmail);
+        if (!found.isEmpty()) {
+            return found.get(0);
+        }
+        return jdbc.queryForObject(CREATE, Long.class, userEmail);
+    }
+}
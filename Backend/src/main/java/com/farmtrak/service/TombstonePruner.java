@@ -0,0 +1,94 @@
+package com.farmtrak.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Deletes change tombstones older than `retention`, every prune-interval. Each batch
+// raises the pruned version of the users it touched to the newest version it deleted, in
+// the same transaction, so ChangeFeedService turns away exactly the clients that could
+// have missed one of them. Clients syncing at least once per retention period never are.
+@Service
+public class TombstonePruner {
+
+    // Deletes one batch, oldest first, and returns its size. The version rows are only
+    // locked for the moment of the update, in the same transaction as the delete.
+    private static final String PRUNE =
+            "WITH pruned AS (DELETE FROM change_tombstone WHERE id IN ("
+            + "  SELECT id FROM change_tombstone WHERE deleted_at < ? ORDER BY deleted_at LIMIT ?) "
+            + "  RETURNING user_email, change_version), "
+            + "bounds AS (SELECT user_email, MAX(change_version) AS version FROM pruned GROUP BY user_email), "
+            + "raised AS (UPDATE user_change_version v SET pruned_version = GREATEST(v.pruned_version, b.version) "
+            + "  FROM bounds b WHERE v.user_email = b.user_email) "
+            + "SELECT COUNT(*) FROM pruned";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+    private final Duration retention;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tombstone-pruner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter prunedTombstones;
+    private final Logger logger = LoggerFactory.getLogger(TombstonePruner.class);
+
+    public TombstonePruner(JdbcTemplate jdbc, TransactionTemplate transactions, MeterRegistry meterRegistry,
+                           @Value("${farmtrak.changes.tombstone-retention:90d}") Duration retention,
+                           @Value("${farmtrak.changes.prune-batch-size:5000}") int batchSize,
+                           @Value("${farmtrak.changes.prune-interval:1h}") Duration interval) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.prunedTombstones = meterRegistry.counter("farmtrak.changes.tombstones.pruned");
+
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::pruneQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    // Returns the number of tombstones deleted
+    public long prune() {
+        Timestamp before = Timestamp.from(Instant.now().minus(retention));
+        long total = 0;
+        long batch;
+        do {
+            Long deleted = transactions.execute(status -> jdbc.queryForObject(PRUNE, Long.class, before, batchSize));
+            batch = deleted == null ? 0 : deleted;
+            prunedTombstones.increment(batch);
+            total += batch;
+        } while (batch == batchSize);
+        if (total > 0) {
+            logger.info("Pruned {} change tombstones older than {}", total, retention);
+        }
+        return total;
+    }
+
+    private void pruneQuietly() {
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            logger.error("Pruning change tombstones failed, retrying with the next run", e);
+        }
+    }
+}
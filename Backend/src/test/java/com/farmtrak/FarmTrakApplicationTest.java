@@ -0,0 +1,50 @@
+package com.farmtrak;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.metamodel.EntityType;
+
+class FarmTrakApplicationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Starting the context builds the EntityManagerFactory, which is where a @Table index
+    // naming a column Hibernate cannot resolve fails. Every declared index and key must
+    // then also exist in the database, including on the tables the migrations rebuild.
+    @Test
+    void startsWithEveryDeclaredIndex() {
+        List<String> declared = new ArrayList<>();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            Table table = entity.getJavaType().getAnnotation(Table.class);
+            if (table == null) {
+                continue;
+            }
+            for (Index index : table.indexes()) {
+                declared.add(index.name());
+            }
+            for (UniqueConstraint constraint : table.uniqueConstraints()) {
+                declared.add(constraint.name());
+            }
+        }
+        assertTrue(declared.size() > 10, "found only " + declared);
+
+        Set<String> present = new HashSet<>(jdbc.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = current_schema()", String.class));
+        List<String> missing = declared.stream().filter(name -> !present.contains(name)).toList();
+        assertEquals(List.of(), missing);
+    }
+}
@@ -0,0 +1,71 @@
+package com.farmtrak;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.farmtrak.service.TenantService;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+// Runs the whole application against an embedded PostgreSQL, shared by every test class
+// in the run. The bearer token is the user's email, so each test picks its own user and
+// leaves the rows of the others alone. Admission control is off, as tests send requests
+// far faster than a user may.
+@SpringBootTest(properties = {
+        "farmtrak.admission.enabled=false",
+        "logging.level.com.farmtrak=WARN"
+})
+@AutoConfigureMockMvc
+@Import(TestTokenVerifierConfig.class)
+public abstract class PostgresIntegrationTest {
+
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @Autowired
+    protected MockMvc mvc;
+
+    @Autowired
+    protected JdbcTemplate jdbc;
+
+    @Autowired
+    protected TenantService tenants;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    protected static String bearer(String userEmail) {
+        return "Bearer " + userEmail;
+    }
+
+    // Inserts a flock for the user and returns its id
+    protected Long createFlock(String userEmail, int numBirds) {
+        Long tenantId = tenants.idOf(userEmail);
+        return jdbc.queryForObject("INSERT INTO flock (num_birds, bird_type, age, start_date, user_email, tenant_id) "
+                        + "VALUES (?, 'Layer', 20, ?, ?, ?) RETURNING id", Long.class,
+                numBirds, Date.valueOf(LocalDate.now().minusYears(1)), userEmail, tenantId);
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            // Logical WAL lets ReplicaRoutingTest feed a second instance from this one
+            return EmbeddedPostgres.builder().setServerConfig("wal_level", "logical").start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
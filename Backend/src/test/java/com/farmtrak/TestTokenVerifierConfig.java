@@ -0,0 +1,22 @@
+package com.farmtrak;
+
+import java.time.Instant;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.auth.VerifiedToken;
+
+// Accepts any bearer token as the email it names, so tests never reach Firebase.
+// Primary, as AuthConfig may register the Firebase verifier before this one is seen.
+@TestConfiguration(proxyBeanMethods = false)
+public class TestTokenVerifierConfig {
+
+    @Bean
+    @Primary
+    TokenVerifier testTokenVerifier() {
+        return token -> new VerifiedToken(token, Instant.now().plusSeconds(3600).getEpochSecond());
+    }
+}
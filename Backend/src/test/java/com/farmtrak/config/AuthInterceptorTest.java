@@ -0,0 +1,108 @@
+package com.farmtrak.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.farmtrak.auth.CachingTokenVerifier;
+import com.farmtrak.auth.TokenVerifier;
+import com.farmtrak.auth.VerifiedToken;
+import com.farmtrak.service.TenantService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The interceptor on its own, in front of a handler that echoes what it sets, with a local
+// verifier standing in for Firebase: it knows one token and rejects everything else
+class AuthInterceptorTest {
+
+    private static final String TOKEN = "token-of-alice";
+    private static final String EMAIL = "alice@farmtrak.test";
+
+    @RestController
+    static class WhoAmI {
+
+        @GetMapping("/api/whoami")
+        String whoAmI(@RequestAttribute String userEmail, @RequestAttribute Long tenantId) {
+            return userEmail + " " + tenantId;
+        }
+    }
+
+    private final AtomicInteger verifications = new AtomicInteger();
+    private final TokenVerifier stub = token -> {
+        verifications.incrementAndGet();
+        if (!TOKEN.equals(token)) {
+            throw new IllegalArgumentException("bad signature");
+        }
+        return new VerifiedToken(EMAIL, Instant.now().plusSeconds(3600).getEpochSecond());
+    };
+    private TenantService tenants;
+
+    @BeforeEach
+    void tenants() {
+        tenants = mock(TenantService.class);
+        when(tenants.idOf(EMAIL)).thenReturn(7L);
+    }
+
+    @Test
+    void missingTokenIsUnauthorized() throws Exception {
+        MockMvc mvc = mvc(stub);
+        mvc.perform(get("/api/whoami")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/api/whoami").header(HttpHeaders.AUTHORIZATION, "Basic " + TOKEN))
+                .andExpect(status().isUnauthorized());
+        assertEquals(0, verifications.get());
+    }
+
+    @Test
+    void badTokenIsUnauthorized() throws Exception {
+        mvc(stub).perform(get("/api/whoami").header(HttpHeaders.AUTHORIZATION, "Bearer forged"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void verifiedTokenSetsUserEmailAndTenant() throws Exception {
+        mvc(stub).perform(get("/api/whoami").header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(content().string(EMAIL + " 7"));
+    }
+
+    // A dashboard burst carries the same token; only its first request is verified
+    @Test
+    void cachedTokenIsVerifiedOncePerBurst() throws Exception {
+        CachingTokenVerifier cache = new CachingTokenVerifier(stub, 100);
+        MockMvc mvc = mvc(cache);
+        for (int i = 0; i < 4; i++) {
+            mvc.perform(get("/api/whoami").header(HttpHeaders.AUTHORIZATION, "Bearer " + TOKEN))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(1, verifications.get());
+        assertEquals(3, cache.getHitCount());
+
+        // Rejections are not cached
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(get("/api/whoami").header(HttpHeaders.AUTHORIZATION, "Bearer forged"))
+                    .andExpect(status().isUnauthorized());
+        }
+        assertEquals(3, verifications.get());
+    }
+
+    private MockMvc mvc(TokenVerifier verifier) {
+        return MockMvcBuilders.standaloneSetup(new WhoAmI())
+                .addInterceptors(new AuthInterceptor(verifier, tenants, new SimpleMeterRegistry()))
+                .build();
+    }
+}
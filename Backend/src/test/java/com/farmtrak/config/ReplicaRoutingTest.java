@@ -0,0 +1,138 @@
+package com.farmtrak.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.farmtrak.PostgresIntegrationTest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+// Runs the application with a replica: a second embedded PostgreSQL fed from the primary
+// by logical replication, which the test pauses to make the replica lag. Reads of a user
+// who has not written lately then show the replica's stale rows; right after the user
+// writes, they come from the primary until the read-your-writes window is over.
+class ReplicaRoutingTest extends PostgresIntegrationTest {
+
+    private static final EmbeddedPostgres REPLICA = start();
+    private static final long WINDOW_MILLIS = 2000;
+
+    // Every table that is not a partition, with its columns, for the replica to create
+    private static final String TABLES =
+            "SELECT c.relname, string_agg(quote_ident(a.attname) || ' ' || format_type(a.atttypid, a.atttypmod), "
+            + "', ' ORDER BY a.attnum) FROM pg_class c JOIN pg_attribute a ON a.attrelid = c.oid "
+            + "WHERE c.relnamespace = current_schema()::regnamespace AND c.relkind IN ('r', 'p') "
+            + "AND NOT c.relispartition AND a.attnum > 0 AND NOT a.attisdropped GROUP BY c.relname";
+
+    private static final String USER = "replica-reader@farmtrak.test";
+
+    private final JdbcTemplate replica = new JdbcTemplate(REPLICA.getPostgresDatabase());
+
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        registry.add("farmtrak.datasource.replica.url", () -> REPLICA.getJdbcUrl("postgres", "postgres"));
+        registry.add("farmtrak.datasource.replica.username", () -> "postgres");
+        registry.add("farmtrak.datasource.replica.read-your-writes", () -> WINDOW_MILLIS + "ms");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        REPLICA.close();
+    }
+
+    @Test
+    void readsFollowTheReplicaExceptRightAfterAWrite() throws Exception {
+        subscribe();
+        try {
+            Long tenantId = tenants.idOf(USER);
+            createFlock(USER, 100);
+            awaitReplica(() -> replicaFlocks(tenantId), 1);
+
+            // The replica stops applying changes; a second flock reaches only the primary
+            pauseReplication();
+            createFlock(USER, 200);
+            assertEquals(1, replicaFlocks(tenantId));
+
+            list().andExpect(jsonPath("$.length()").value(1));
+
+            mvc.perform(post("/api/flocks").header(HttpHeaders.AUTHORIZATION, bearer(USER))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"numBirds\":300,\"birdType\":\"Layer\",\"age\":20}"))
+                    .andExpect(status().isOk());
+            // The write went to the primary, and the user's reads follow it there
+            assertEquals(1, replicaFlocks(tenantId));
+            list().andExpect(jsonPath("$.length()").value(3));
+
+            Thread.sleep(WINDOW_MILLIS + 500);
+            list().andExpect(jsonPath("$.length()").value(1));
+
+            replica.execute("ALTER SUBSCRIPTION farmtrak_test ENABLE");
+            awaitReplica(() -> replicaFlocks(tenantId), 3);
+            list().andExpect(jsonPath("$.length()").value(3));
+        } finally {
+            replica.execute("DROP SUBSCRIPTION IF EXISTS farmtrak_test");
+            jdbc.execute("DROP PUBLICATION IF EXISTS farmtrak_test");
+        }
+    }
+
+    // Paged, so the per-user list cache stays out of it
+    private ResultActions list() throws Exception {
+        return mvc.perform(get("/api/flocks").param("limit", "50").header(HttpHeaders.AUTHORIZATION, bearer(USER)))
+                .andExpect(status().isOk());
+    }
+
+    private int replicaFlocks(Long tenantId) {
+        return replica.queryForObject("SELECT COUNT(*) FROM flock WHERE tenant_id = ?", Integer.class, tenantId);
+    }
+
+    // Inserts only: the partitioned tables have no primary key to replicate updates by
+    private void subscribe() {
+        jdbc.query(TABLES, (rs, i) -> "CREATE TABLE IF NOT EXISTS " + rs.getString(1) + " (" + rs.getString(2) + ")")
+                .forEach(replica::execute);
+        String port = jdbc.queryForObject("SELECT current_setting('port')", String.class);
+        jdbc.execute("CREATE PUBLICATION farmtrak_test FOR ALL TABLES "
+                + "WITH (publish = 'insert', publish_via_partition_root = true)");
+        replica.execute("CREATE SUBSCRIPTION farmtrak_test CONNECTION 'host=localhost port=" + port
+                + " user=postgres dbname=postgres' PUBLICATION farmtrak_test");
+    }
+
+    // Waits for the apply worker to exit, so nothing written after this reaches the replica
+    private void pauseReplication() throws InterruptedException {
+        replica.execute("ALTER SUBSCRIPTION farmtrak_test DISABLE");
+        awaitReplica(() -> replica.queryForObject("SELECT COUNT(*) FROM pg_stat_subscription "
+                + "WHERE subname = 'farmtrak_test' AND pid IS NOT NULL", Integer.class), 0);
+    }
+
+    private static void awaitReplica(Supplier<Integer> actual, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (actual.get() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                assertEquals(expected, actual.get(), "replica did not catch up");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
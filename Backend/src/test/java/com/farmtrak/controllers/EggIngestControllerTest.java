@@ -0,0 +1,67 @@
+package com.farmtrak.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.farmtrak.PostgresIntegrationTest;
+
+@TestPropertySource(properties = {
+        "farmtrak.ingest.enabled=true",
+        "farmtrak.partitions.egg-raw-months=120"
+})
+class EggIngestControllerTest extends PostgresIntegrationTest {
+
+    private static final String USER = "egg-ingest@farmtrak.test";
+
+    @DynamicPropertySource
+    static void ingestLog(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("farmtrak-ingest").toString();
+        registry.add("farmtrak.ingest.dir", () -> dir);
+    }
+
+    @Test
+    void entriesAreAccepted() throws Exception {
+        Long flockId = createFlock(USER, 100);
+        ingest("[{\"flockId\":" + flockId + ",\"count\":40,\"date\":\"" + LocalDate.now() + "\"}]")
+                .andExpect(status().isAccepted());
+    }
+
+    // count is an int on EggProduction; a missing one must not be taken as 0
+    @Test
+    void entryWithoutCountIsRejected() throws Exception {
+        Long flockId = createFlock(USER, 100);
+        ingest("[{\"flockId\":" + flockId + ",\"count\":null}]").andExpect(status().isBadRequest());
+        ingest("[{\"flockId\":" + flockId + "}]").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void entryWithoutFlockIsRejected() throws Exception {
+        ingest("[{\"count\":40}]").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void archivedEntryIsAConflict() throws Exception {
+        Long flockId = createFlock(USER, 100);
+        ingest("[{\"flockId\":" + flockId + ",\"count\":40,\"date\":\"" + LocalDate.now().minusYears(20) + "\"}]")
+                .andExpect(status().isConflict());
+    }
+
+    private ResultActions ingest(String body) throws Exception {
+        return mvc.perform(post("/api/eggs/ingest")
+                .header(HttpHeaders.AUTHORIZATION, bearer(USER))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
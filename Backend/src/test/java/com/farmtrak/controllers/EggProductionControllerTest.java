@@ -0,0 +1,81 @@
+package com.farmtrak.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.farmtrak.PostgresIntegrationTest;
+
+class EggProductionControllerTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int POSTS_PER_THREAD = 25;
+
+    // Every merge lands on the same (flock, date) row at once; none may be lost or turn
+    // into a second row, and the farm's daily rollup must agree with the row
+    @Test
+    void concurrentMergesAddUp() throws Exception {
+        String user = "concurrent-merge@farmtrak.test";
+        Long flockId = createFlock(user, 500);
+        LocalDate date = LocalDate.now();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> posters = new ArrayList<>();
+        int expected = 0;
+        for (int t = 0; t < THREADS; t++) {
+            int count = t + 1;
+            expected += count * POSTS_PER_THREAD;
+            posters.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < POSTS_PER_THREAD; i++) {
+                    mvc.perform(post("/api/eggs").param("merge", "true")
+                                    .header(HttpHeaders.AUTHORIZATION, bearer(user))
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("{\"flockId\":" + flockId + ",\"count\":" + count
+                                            + ",\"date\":\"" + date + "\"}"))
+                            .andExpect(status().isOk());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> poster : posters) {
+                poster.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(List.of(expected), jdbc.queryForList(
+                "SELECT count FROM egg_production WHERE flock_id = ? AND date = ?", Integer.class,
+                flockId, Date.valueOf(date)));
+        assertEquals(expected, jdbc.queryForObject(
+                "SELECT SUM(count) FROM daily_egg_rollup WHERE user_email = ? AND date = ?", Integer.class,
+                user, Date.valueOf(date)));
+    }
+
+    @Test
+    void entryWithoutFlockIsRejected() throws Exception {
+        mvc.perform(post("/api/eggs").param("merge", "true")
+                        .header(HttpHeaders.AUTHORIZATION, bearer("no-flock@farmtrak.test"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"count\":10,\"date\":\"" + LocalDate.now() + "\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
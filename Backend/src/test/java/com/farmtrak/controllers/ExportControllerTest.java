@@ -0,0 +1,127 @@
+package com.farmtrak.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.farmtrak.PostgresIntegrationTest;
+
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+class ExportControllerTest extends PostgresIntegrationTest {
+
+    // Tag of the tests that pom.xml runs in a separate JVM with a small -Xmx
+    private static final String LARGE_EXPORT = "large-export";
+
+    private static final int ROWS = 200_000;
+    private static final int LARGE_ROWS = 3_000_000;
+
+    @Autowired
+    private ExportController exportController;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Checks, on every write to the response, that the rows so far went out while the
+    // export's transaction is still reading and that none of them is held as an entity
+    private final class CheckingStream extends ServletOutputStream {
+
+        private long bytes;
+        private long lines;
+        private int writes;
+        private long firstWrite = -1;
+        private int maxManaged;
+        private boolean outsideTransaction;
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            writes++;
+            if (firstWrite < 0) {
+                firstWrite = length;
+            }
+            bytes += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            outsideTransaction |= !TransactionSynchronizationManager.isActualTransactionActive();
+            maxManaged = Math.max(maxManaged, entityManager.unwrap(SessionImplementor.class)
+                    .getPersistenceContextInternal().getNumberOfManagedEntities());
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+    }
+
+    @Test
+    void expensesStreamWithoutLoadingEntities() throws Exception {
+        CheckingStream out = exportExpenses("export-stream@farmtrak.test", ROWS);
+
+        // The header line and one line per row
+        assertEquals(ROWS + 1, out.lines);
+        assertEquals(0, out.maxManaged, "rows were loaded into the persistence context");
+        assertTrue(!out.outsideTransaction, "the export wrote after its transaction ended");
+        // Written in many small pieces as the rows are read, not as one buffer at the end
+        assertTrue(out.writes > 100, "only " + out.writes + " writes");
+        assertTrue(out.firstWrite < out.bytes / 100, "first write held " + out.firstWrite + " of " + out.bytes);
+    }
+
+    // Runs only in the large-export surefire execution, in its own JVM with a heap far
+    // smaller than these rows would need if any part of the export held them all
+    @Test
+    @Tag(LARGE_EXPORT)
+    void millionsOfExpensesExportInASmallHeap() throws Exception {
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        assertTrue(maxHeap <= 320L * 1024 * 1024, "heap is " + (maxHeap >> 20) + " MB, not the small -Xmx");
+
+        CheckingStream out = exportExpenses("export-large@farmtrak.test", LARGE_ROWS);
+
+        assertEquals(LARGE_ROWS + 1, out.lines);
+        assertEquals(0, out.maxManaged, "rows were loaded into the persistence context");
+    }
+
+    private CheckingStream exportExpenses(String user, int rows) throws Exception {
+        Long tenantId = tenants.idOf(user);
+        jdbc.update("INSERT INTO expense (category, amount, date, notes, paid, user_email, tenant_id) "
+                + "SELECT 'feed', 10 + n % 490, CAST(? AS date) - n % 3650, 'export test', n % 2 = 0, ?, ? "
+                + "FROM generate_series(1, ?) n", Date.valueOf(LocalDate.now()), user, tenantId, rows);
+
+        CheckingStream out = new CheckingStream();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/export/expenses");
+        request.setAttribute("tenantId", tenantId);
+        request.setAttribute("userEmail", user);
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return out;
+            }
+        };
+
+        exportController.export("expenses", "csv", request, response);
+        return out;
+    }
+}
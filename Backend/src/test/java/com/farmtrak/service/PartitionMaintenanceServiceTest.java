@@ -0,0 +1,41 @@
+package com.farmtrak.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+
+import com.farmtrak.PostgresIntegrationTest;
+
+class PartitionMaintenanceServiceTest extends PostgresIntegrationTest {
+
+    // Each egg month is a range partition that is hash partitioned on tenant_id in turn
+    @Test
+    void eggMonthsAreSplitByTenant() {
+        String month = PartitionMaintenanceService.partitionName("egg_production", YearMonth.now());
+        assertEquals("h", jdbc.queryForObject("SELECT partstrat FROM pg_partitioned_table "
+                + "WHERE partrelid = to_regclass(?)", String.class, month));
+        assertEquals(16, jdbc.queryForObject("SELECT COUNT(*) FROM pg_inherits WHERE inhparent = to_regclass(?)",
+                Integer.class, month));
+
+        String user = "partition-split@farmtrak.test";
+        Long tenantId = tenants.idOf(user);
+        Long flockId = createFlock(user, 100);
+        String partition = jdbc.queryForObject("INSERT INTO egg_production (count, date, flock_id, user_email, "
+                        + "tenant_id) VALUES (50, ?, ?, ?, ?) RETURNING CAST(tableoid::regclass AS text)", String.class,
+                Date.valueOf(LocalDate.now()), flockId, user, tenantId);
+        assertTrue(partition.matches(month + "_p\\d+"), partition);
+    }
+
+    // Expense and revenue months stay single tables
+    @Test
+    void otherMonthsAreNotSplit() {
+        String month = PartitionMaintenanceService.partitionName("expense", YearMonth.now());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM pg_partitioned_table "
+                + "WHERE partrelid = to_regclass(?)", Integer.class, month));
+    }
+}
@@ -13,46 +13,23 @@ export default function Dashboard() {
 
   const loadDashboardData = async () => {
     try {
-      const [flocksRes, expensesRes, eggsRes, revenueRes] = await Promise.all([
-        apiClient.flocks.getAll(),
-        apiClient.expenses.getAll(),
-        apiClient.eggs.getAll(),
-        apiClient.revenue.getAll(),
-      ]);
+      const { data } = await apiClient.dashboard.getSummary(7);
 
-      const flocks = flocksRes.data || [];
-      const expenses = expensesRes.data || [];
-      const eggs = eggsRes.data || [];
-      const revenue = revenueRes.data || [];
+      setStats({
+        totalBirds: data.totalBirds || 0,
+        eggsToday: data.eggsToday || 0,
+        profit: data.profit || 0,
+        totalExpenses: data.totalExpenses || 0,
+      });
 
-      const totalBirds = flocks.reduce((sum, f) => sum + (f.numBirds || 0), 0);
-      const totalExpenses = expenses.reduce((sum, e) => sum + (e.amount || 0), 0);
-      const totalRevenue = revenue.reduce((sum, r) => sum + (r.amount || 0), 0);
-      const todayStr = new Date().toISOString().split("T")[0];
-      const eggsToday = eggs.filter((e) => e.date?.startsWith(todayStr)).reduce((sum, e) => sum + (e.count || 0), 0);
-
-      setStats({ totalBirds, eggsToday, profit: totalRevenue - totalExpenses, totalExpenses });
-
-      const last7Days = Array.from({ length: 7 }, (_, i) => {
-        const d = new Date();
-        d.setDate(d.getDate() - i);
-        return d.toISOString().split("T")[0];
-      }).reverse();
-
-      const combinedTrendData = last7Days.map(date => ({
-        month: new Date(date).toLocaleDateString('en-US', { month: 'short', day: 'numeric' }),
-        revenue: revenue.filter(r => r.date === date).reduce((sum, r) => sum + r.amount, 0),
-        eggs: eggs.filter(e => e.date === date).reduce((sum, e) => sum + e.count, 0),
-      }));
-      setTrendData(combinedTrendData);
+      setTrendData((data.dailySeries || []).map(point => ({
+        month: new Date(point.date).toLocaleDateString('en-US', { month: 'short', day: 'numeric' }),
+        revenue: point.revenue,
+        eggs: point.eggs,
+      })));
 
-      const expensesData = expenses.reduce((acc, expense) => {
-        const category = expense.category || 'Other';
-        acc[category] = (acc[category] || 0) + expense.amount;
-        return acc;
-      }, {});
-      setExpenseBreakdown(Object.entries(expensesData).map(([name, value], index) => ({ 
-        name, value, color: COLORS[index % COLORS.length]
+      setExpenseBreakdown((data.expensesByCategory || []).map(({ category, total }, index) => ({
+        name: category, value: total, color: COLORS[index % COLORS.length]
       })));
 
     } catch (err) {
@@ -18,8 +18,20 @@ const getHeaders = () => {
 
 axios.defaults.withCredentials = true;
 
+// A 429 means the server is shedding load; reads are retried once after its Retry-After
+axios.interceptors.response.use(undefined, async (error) => {
+  const { config, response } = error;
+  if (response?.status !== 429 || config?.method !== "get" || config._retried) {
+    throw error;
+  }
+  const seconds = Number(response.headers["retry-after"]) || 1;
+  await new Promise((resolve) => setTimeout(resolve, seconds * 1000));
+  return axios({ ...config, _retried: true });
+});
+
 const createCrudClient = (resource) => ({
-  getAll: () => axios.get(`${API_BASE_URL}/${resource}`, { headers: getHeaders() }),
+  // params: optional { from, to, after, limit }; a next page is signalled by the X-Next-Cursor header
+  getAll: (params) => axios.get(`${API_BASE_URL}/${resource}`, { params, headers: getHeaders() }),
   save: (data) => axios.post(`${API_BASE_URL}/${resource}`, data, { headers: getHeaders() }),
   update: (id, data) => axios.put(`${API_BASE_URL}/${resource}/${id}`, data, { headers: getHeaders() }),
   delete: (id) => axios.delete(`${API_BASE_URL}/${resource}/${id}`, { headers: getHeaders() }),
@@ -28,7 +40,43 @@ const createCrudClient = (resource) => ({
 export const apiClient = {
   flocks: createCrudClient("flocks"),
   expenses: createCrudClient("expenses"),
-  eggs: createCrudClient("eggs"),
-  feedRecords: createCrudClient("feed-records"),
+  eggs: {
+    ...createCrudClient("eggs"),
+    saveBulk: (entries, merge = false) => axios.post(`${API_BASE_URL}/eggs/bulk`, entries, { params: { merge }, headers: getHeaders() }),
+    // Per-flock monthly totals, archived months included; from/to as "yyyy-MM"
+    monthly: (from, to) => axios.get(`${API_BASE_URL}/eggs/monthly`, { params: { from, to }, headers: getHeaders() }),
+    // Daily counts per flock for the last `days` days, with a `window`-day moving average and laying rates
+    trend: (days = 30, window = 7) => axios.get(`${API_BASE_URL}/eggs/trend`, { params: { days, window }, headers: getHeaders() }),
+  },
+  feedRecords: {
+    ...createCrudClient("feed-records"),
+    // Per-flock daily feed needs; stockKg (optional) is the feed on hand, for days until it runs out
+    forecast: (stockKg) => axios.get(`${API_BASE_URL}/feed-records/forecast`, {
+      params: stockKg === undefined ? {} : { stockKg }, headers: getHeaders(),
+    }),
+  },
   revenue: createCrudClient("revenue"),
+  dashboard: {
+    getSummary: (days = 7) => axios.get(`${API_BASE_URL}/dashboard`, { params: { days }, headers: getHeaders() }),
+  },
+  analytics: {
+    // Per-flock cost per egg, revenue per bird and margin by month; from/to are "yyyy-MM", both optional
+    profitability: (from, to) => axios.get(`${API_BASE_URL}/analytics/profitability`, {
+      params: { from, to }, headers: getHeaders(),
+    }),
+  },
+  // Rows created or updated after `version`, plus tombstones for deleted rows; omit it for a full copy.
+  // Keep the returned `version` and pass it on the next call. /changes/stream pushes the same sets as SSE.
+  // A 410 (or a "resync" stream event) means tombstones that old are pruned: fetch a full copy again.
+  changes: {
+    since: (version) => axios.get(`${API_BASE_URL}/changes`, {
+      params: version === undefined ? {} : { since: version }, headers: getHeaders(),
+    }),
+  },
+  // resource: "expenses" | "revenue" | "eggs"; format: "ndjson" | "csv"
+  exports: {
+    download: (resource, format = "csv") => axios.get(`${API_BASE_URL}/export/${resource}`, {
+      params: { format }, responseType: "blob", headers: getHeaders(),
+    }),
+  },
 };